@@ -1,6 +1,8 @@
 package board;
 
 
+import java.util.Random;
+
 import player.MachinePlayer;
 import player.Move;
 import player.Player;
@@ -9,7 +11,9 @@ import player.Player;
 
 /**
  *  Simple class that implements an 8x8 game board with three possible values
- *  for each cell:  0, 1 or 2.
+ *  for each cell:  0, 1 or 2.  The cells are stored as two bitboards, one
+ *  long per color (see Squares for the bit layout); elementAt() and
+ *  setElementAt() are a view over them.
  *
  *  DO NOT CHANGE ANY PROTOTYPES IN THIS FILE.
  **/
@@ -19,22 +23,149 @@ public class SimpleBoard {
 	private final static int BLACK = 2;
 	private final static int WHITE = 1;
 	private final static int EMPTY = 0;
-	private int[][] grid;
+	// value reported by elementAt() for an unoccupied corner
+	private final static int INVALID = 5;
+	// one bit per WHITE chip
+	private long white;
+	// one bit per BLACK chip
+	private long black;
+	// Zobrist key of the chips of each turn, indexed by WHITE_FIRST/BLACK_SECOND
+	private long[] chipKeys;
+
+	// Zobrist tables: one random key per (turn, square), plus side to move and
+	// the STEP phase of each turn
+	private final static long[][] ZOBRIST = new long[2][Squares.SQUARES];
+	private final static long SIDE_KEY;
+	private final static long[] STEP_KEY = new long[2];
+	// number of chips after which a player can only STEP
+	private final static int MAX_CHIPS = 10;
+
+	static {
+		// fixed seed, so keys are reproducible between runs
+		Random random = new Random(61L);
+		for (int turn = 0; turn < 2; turn++) {
+			for (int square = 0; square < Squares.SQUARES; square++) {
+				ZOBRIST[turn][square] = random.nextLong();
+			}
+			STEP_KEY[turn] = random.nextLong();
+		}
+		SIDE_KEY = random.nextLong();
+	}
 
   /**
    *  Invariants:  
-   *  (1) grid.length == DIMENSION.
-   *  (2) for all 0 <= i < DIMENSION, grid[i].length == DIMENSION.
-   *  (3) for all 0 <= i, j < DIMENSION, grid[i][j] >= 0 and grid[i][j] <= 2.
+   *  (1) white & black == 0.
+   *  (2) no bit at or above DIMENSION * DIMENSION is set.
+   *  (3) chipKeys[turn] is the XOR of ZOBRIST[turn][square] over the chips of
+   *      that turn.
    **/
 
   /**
    *  Construct a new board in which all cells are zero.
    */
 	public SimpleBoard() {
-		grid = new int[DIMENSION][DIMENSION];
-		// set the four corners of the board to invalid value
-		grid[0][7] = grid[7][7] = grid[0][0] = grid[7][0] = 5;
+		white = 0;
+		black = 0;
+		chipKeys = new long[2];
+	}
+
+	/**
+	 * getChips() returns the bitboard of all chips of the given turn
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 * @return one bit per chip, see Squares for the layout
+	 */
+	public long getChips(int turn) {
+		return turn == MachinePlayer.WHITE_FIRST ? white : black;
+	}
+
+	/**
+	 * getChipKey() returns the Zobrist key of the chips of the given turn only
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 */
+	public long getChipKey(int turn) {
+		return chipKeys[turn];
+	}
+
+	/**
+	 * positionKey() returns the 64-bit Zobrist key of this position with the
+	 * given player to move. The key covers both colors' chips, the side to move
+	 * and whether each player is already in the STEP phase, so it can key
+	 * transposition and evaluation caches. Runs in O(1).
+	 * @param turn, the turn of the player to move
+	 * @return the position key
+	 */
+	public long positionKey(int turn) {
+		long key = chipKeys[0] ^ chipKeys[1];
+		if (turn == MachinePlayer.WHITE_FIRST) {
+			key ^= SIDE_KEY;
+		}
+		if (Long.bitCount(white) >= MAX_CHIPS) {
+			key ^= STEP_KEY[MachinePlayer.WHITE_FIRST];
+		}
+		if (Long.bitCount(black) >= MAX_CHIPS) {
+			key ^= STEP_KEY[MachinePlayer.BLACK_SECOND];
+		}
+		return key;
+	}
+
+	/**
+	 * structureKey() returns a Zobrist key of everything the network
+	 * evaluation of one color depends on: its own chips, the opposing chips
+	 * standing between two of its chips on a line, and the color itself.
+	 * Opposing chips anywhere else do not change the key.
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 * @return the structure key
+	 */
+	public long structureKey(int turn) {
+		long blockers = blockers(turn);
+		long key = chipKeys[turn];
+		for (; blockers != 0; blockers &= blockers - 1) {
+			key ^= ZOBRIST[1 - turn][Long.numberOfTrailingZeros(blockers)];
+		}
+		if (turn == MachinePlayer.WHITE_FIRST) {
+			key ^= SIDE_KEY;
+		}
+		return key;
+	}
+
+	/**
+	 * blockers() returns the opposing chips that stand between two chips of
+	 * one color on a line, and so cut the link between them
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 * @return the bitboard of the blocking chips of the other color
+	 */
+	public long blockers(int turn) {
+		long own = getChips(turn);
+		long blockers = 0;
+		for (long rest = own; rest != 0; rest &= rest - 1) {
+			int square = Long.numberOfTrailingZeros(rest);
+			for (int d = 1; d < Squares.DIRECTIONS; d += 2) {
+				int next = Squares.firstAlong(d, square, own);
+				if (next >= 0) {
+					blockers |= Squares.BETWEEN[square][next];
+				}
+			}
+		}
+		return blockers & getChips(1 - turn);
+	}
+
+	/**
+	 * getOccupied() returns the bitboard of all chips on the board
+	 */
+	public long getOccupied() {
+		return white | black;
+	}
+
+	/**
+	 * forbiddenGoals() returns the goal squares the given turn may never use
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 * @return the opponent's goal areas
+	 */
+	public static long forbiddenGoals(int turn) {
+		if (turn == MachinePlayer.WHITE_FIRST) {
+			return Squares.BLACK_GOAL_A | Squares.BLACK_GOAL_B;
+		}
+		return Squares.WHITE_GOAL_A | Squares.WHITE_GOAL_B;
 	}
   
 	/**
@@ -46,9 +177,6 @@ public class SimpleBoard {
 	public boolean isValidMove(Move m, int turn) {
 		int tempX = m.x1;
 		int tempY = m.y1;
-		int chipValue = turn == MachinePlayer.WHITE_FIRST ? WHITE : BLACK;
-		int flag = 0;
-		boolean condition = false;
 		/*
 		 * check : 1. no chip may be placed in a square that is already occupied
 		 * 2. no chip may be placed in any of the four corners
@@ -57,82 +185,101 @@ public class SimpleBoard {
 		if (tempX < 0 || tempX >= DIMENSION || tempY < 0 || tempY >= DIMENSION) {
 			return false;
 		}
-		if (elementAt(tempX, tempY) != EMPTY) {
+		long target = Squares.bit(tempX, tempY);
+		if (((white | black | Squares.CORNERS) & target) != 0) {
 			return false;
 		}
 		/*
 		 * check 3. no chip may be placed in a goal of the opposite color WHITE
 		 * goal area: x == 0 || x == 7 BLACK goal area: y == 0 || y == 7
 		 */
-		if (turn == MachinePlayer.WHITE_FIRST && (tempY == 0 || tempY == 7)) {
+		if ((forbiddenGoals(turn) & target) != 0) {
 			return false;
 		}
-		if (turn == MachinePlayer.BLACK_SECOND && (tempX == 0 || tempX == 7)) {
-			return false;
+		// a STEP has to move one of the player's own chips
+		if (m.moveKind == Move.STEP) {
+			if (m.x2 < 0 || m.x2 >= DIMENSION || m.y2 < 0 || m.y2 >= DIMENSION) {
+				return false;
+			}
+			if ((getChips(turn) & Squares.bit(m.x2, m.y2)) == 0) {
+				return false;
+			}
 		}
 		/*
 		 * check 4. a player may not have more than two chips in a connected
 		 * group
 		 */
-		// tempGrid the player's current board
-		// assuming that this chip is placed at this grid
-		// add = 1; step = 2;
-		if (m.moveKind == 2) {
+		long own = getChips(turn);
+		if (m.moveKind == Move.STEP) {
 			// if the move is step, we need to remove the old one
-			setElementAt(m.x2, m.y2, EMPTY);
-			flag = 1;
+			own &= ~Squares.bit(m.x2, m.y2);
 		}
+		return !formsCluster(Squares.square(tempX, tempY), own);
+	}
+
+	/**
+	 * openSquares() returns the squares a chip of the given turn could go to
+	 * if clusters did not matter: the empty squares outside the corners and
+	 * the opponent's goals
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 */
+	public long openSquares(int turn) {
+		return ~(white | black | Squares.CORNERS | forbiddenGoals(turn));
+	}
 
-		condition = !isNarrowConnected(tempX, tempY, turn);
-		if (flag == 1) {
-			setElementAt(m.x2, m.y2, chipValue);
+	/**
+	 * clusterSquares() returns the squares where a new chip would form a
+	 * group of three with the given chips: those next to two of them, and
+	 * those next to one that already has a neighbor among them. One pass
+	 * over the chips, no search.
+	 * @param own, the bitboard of the player's chips, without a moving chip
+	 * @return the squares a chip may not be put on
+	 */
+	public static long clusterSquares(long own) {
+		long ones = 0;
+		long twos = 0;
+		long crowded = 0;
+		for (long chips = own; chips != 0; chips &= chips - 1) {
+			long around = Squares.NEIGHBORS[Long.numberOfTrailingZeros(chips)];
+			twos |= ones & around;
+			ones |= around;
+			if ((around & own) != 0) {
+				crowded |= around;
+			}
 		}
-		return condition;
+		return twos | crowded;
 	}
-  
-  
+
   /**
-   * isNarrowConnected() is to check whether there is three or more chips of the same color in a cluster
+   * isNarrowConnected() is to check whether placing a chip of the given turn at
+   * (x, y) would make a cluster of three or more chips of the same color
    * if that happens, return true;
    * @param x  the pointed to be check, x axis
    * @param y  the pointed to be check, y axis
    * @return true, is the given condition is true
    */
 	public boolean isNarrowConnected(int x, int y, int turn) {
-		SimpleBoard board = new SimpleBoard();
-		int number = numNarrowConnected(x, y, turn, board, 1);
-		return number > 2 ? true : false;
+		return formsCluster(Squares.square(x, y), getChips(turn) & ~Squares.bit(x, y));
 	}
 
 	/**
-	 * numNarrowConnected() is the helper function for isNarrowConnected(). It
-	 * computers the number of current chips within a cluster
-	 * @param x the pointed to be check, x axis
-	 * @param y the pointed to be check, y axis
-	 * @param turn current player's turn
-	 * @param board the current board to be checked
-	 * @param number the number of current chips within a cluster, begins with 1
-	 * in isNarrowConnected()
-	 * @return the number of current chips within a cluster
+	 * formsCluster() is the helper function for isNarrowConnected(). As no
+	 * legal position holds a group of three, a new chip makes one exactly when
+	 * it touches two own chips, or touches one own chip that already has an own
+	 * neighbor. Runs in constant time and allocates nothing.
+	 * @param square the bit index of the new chip
+	 * @param own the bitboard of the player's other chips
+	 * @return true if the new chip would be in a group of 3 or more
 	 */
-	public int numNarrowConnected(int x, int y, int turn, SimpleBoard board, int number) {
-		int chipValue = turn == MachinePlayer.WHITE_FIRST ? WHITE : BLACK;
-		// direction array includes 8 direction given the specific point
-		int[][] direction = { { -1, -1 }, { -1, 0 }, { -1, 1 }, { 1, -1 }, { 1, 0 }, { 1, 1 }, { 0, -1 }, { 0, 1 } };
-		int posX;
-		int posY;
-		int count = number;
-		for (int i = 0; i < 8; i++) {
-			posX = x + direction[i][0];
-			posY = y + direction[i][1];
-			if (posX >= 0 && posY >= 0 && posX < DIMENSION && posY < DIMENSION) {
-				if (elementAt(posX, posY) == chipValue && board.elementAt(posX, posY) == 0) {
-					board.setElementAt(posX, posY, 1);
-					count += numNarrowConnected(posX, posY, turn, board, count);
-				}
-			}
+	private static boolean formsCluster(int square, long own) {
+		long touching = Squares.NEIGHBORS[square] & own;
+		if (touching == 0) {
+			return false;
+		}
+		if ((touching & (touching - 1)) != 0) {
+			return true;
 		}
-		return count;
+		return (Squares.NEIGHBORS[Long.numberOfTrailingZeros(touching)] & own) != 0;
 	}
   
  /**
@@ -145,14 +292,59 @@ public class SimpleBoard {
 		 * x1, y1 are the new position
 		 */
 		// ADD
-		int chipValue = turn == MachinePlayer.WHITE_FIRST ? WHITE : BLACK;
 		if (m.moveKind == Move.ADD) {
-			this.setElementAt(m.x1, m.y1, chipValue);
+			place(Squares.square(m.x1, m.y1), turn);
 			// STEP
 		} else if (m.moveKind == Move.STEP) {
-			this.setElementAt(m.x2, m.y2, 0);
-			this.setElementAt(m.x1, m.y1, chipValue);
+			lift(Squares.square(m.x2, m.y2), turn);
+			place(Squares.square(m.x1, m.y1), turn);
+		}
+	}
+
+	/**
+	 * unmakeMove() takes back a move made by makeMove(), so that a search
+	 * can run on one board without cloning it
+	 * @param m, the move that was the last one made on this board
+	 * @param turn, BLACK or WHITE, the turn that made m
+	 */
+	public void unmakeMove(Move m, int turn) {
+		if (m.moveKind == Move.ADD) {
+			lift(Squares.square(m.x1, m.y1), turn);
+		} else if (m.moveKind == Move.STEP) {
+			lift(Squares.square(m.x1, m.y1), turn);
+			place(Squares.square(m.x2, m.y2), turn);
+		}
+	}
+
+	/**
+	 * place() puts a chip of the given turn on an empty square, and updates
+	 * the Zobrist key of that turn; with lift() it lets a search apply
+	 * packed moves without building a Move
+	 * @param square, the bit index of the square
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 */
+	public void place(int square, int turn) {
+		if (turn == MachinePlayer.WHITE_FIRST) {
+			white |= 1L << square;
+		} else {
+			black |= 1L << square;
 		}
+		chipKeys[turn] ^= ZOBRIST[turn][square];
+	}
+
+	/**
+	 * lift() removes the chip of the given turn from a square, and updates
+	 * the Zobrist key of that turn
+	 * @param square, the bit index of the square
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 */
+	public void lift(int square, int turn) {
+		if (turn == MachinePlayer.WHITE_FIRST) {
+			white &= ~(1L << square);
+		} else {
+			black &= ~(1L << square);
+		}
+		chipKeys[turn] ^= ZOBRIST[turn][square];
 	}
    
  /**
@@ -162,11 +354,10 @@ public class SimpleBoard {
   */
 	public SimpleBoard clone() {
 		SimpleBoard board = new SimpleBoard();
-		for (int y = 0; y < DIMENSION; y++) {
-			for (int x = 0; x < DIMENSION; x++) {
-				board.grid[x][y] = this.grid[x][y];
-			}
-		}
+		board.white = this.white;
+		board.black = this.black;
+		board.chipKeys[0] = this.chipKeys[0];
+		board.chipKeys[1] = this.chipKeys[1];
 		return board;
 	}
   
@@ -179,9 +370,24 @@ public class SimpleBoard {
    *  is given.
    **/  
 	public void setElementAt(int x, int y, int value) {
-		grid[x][y] = value % 3;
-		if (grid[x][y] < 0) {
-			grid[x][y] = grid[x][y] + 3;
+		if (x < 0 || x >= DIMENSION || y < 0 || y >= DIMENSION) {
+			throw new ArrayIndexOutOfBoundsException();
+		}
+		value = value % 3;
+		if (value < 0) {
+			value = value + 3;
+		}
+		int square = Squares.square(x, y);
+		if ((white & (1L << square)) != 0) {
+			lift(square, MachinePlayer.WHITE_FIRST);
+		}
+		if ((black & (1L << square)) != 0) {
+			lift(square, MachinePlayer.BLACK_SECOND);
+		}
+		if (value == WHITE) {
+			place(square, MachinePlayer.WHITE_FIRST);
+		} else if (value == BLACK) {
+			place(square, MachinePlayer.BLACK_SECOND);
 		}
 	}
 
@@ -189,12 +395,22 @@ public class SimpleBoard {
    *  Get the valued stored in cell (x, y).
    *  @param x is the x-index.
    *  @param y is the y-index.
-   *  @return the stored value (between 0 and 2).
+   *  @return the stored value (between 0 and 2), or 5 for an empty corner.
    *  @exception ArrayIndexOutOfBoundsException is thrown if an invalid index
    *  is given.
    */
 	public int elementAt(int x, int y) {
-		return grid[x][y];
+		if (x < 0 || x >= DIMENSION || y < 0 || y >= DIMENSION) {
+			throw new ArrayIndexOutOfBoundsException();
+		}
+		long mask = Squares.bit(x, y);
+		if ((white & mask) != 0) {
+			return WHITE;
+		}
+		if ((black & mask) != 0) {
+			return BLACK;
+		}
+		return (Squares.CORNERS & mask) != 0 ? INVALID : EMPTY;
 	}
 
   /**
@@ -204,43 +420,21 @@ public class SimpleBoard {
    *  @return true if the boards are equal, false otherwise.
    */
 	public boolean equals(Object board) {
-		// Replace the following line with your solution. Be sure to return
-		// false
-		// (rather than throwing a ClassCastException) if "board" is not
-		// a SimpleBoard.
 		if (board instanceof SimpleBoard) {
-			for (int y = 0; y < DIMENSION; y++) {
-				for (int x = 0; x < DIMENSION; x++) {
-					if (this.elementAt(x, y) != ((SimpleBoard) board).elementAt(x, y)) {
-						return false;
-					}
-				}
-			}
-			return true;
+			return this.white == ((SimpleBoard) board).white && this.black == ((SimpleBoard) board).black;
 		}
 		return false;
 	}
 
   /**
    *  Returns a hash code for this SimpleBoard.
-   *  each cell as a digit of a base-3 number(with 64 digits), and convert that base-3 number
-   *  to a single int
-   *  we assume that (0,0) is the greatest significant digit 
-   *  (7,7) is the least significant digit
+   *  folds the Zobrist keys of both colors into a single int; it does not
+   *  depend on the side to move, so it agrees with equals()
    *  @return a number between Integer.MIN_VALUE and Integer.MAX_VALUE.
    */
 	public int hashCode() {
-		int sum = 0;
-		for (int y = 0; y < DIMENSION; y++) {
-			for (int x = 0; x < DIMENSION; x++) {
-				if (!((x == 0 && y == 0) || (x == DIMENSION && y == DIMENSION) || (x == DIMENSION && y == 0)
-						|| (x == 0 && y == DIMENSION))) {
-					sum = 3 * sum + this.elementAt(x, y);
-				}
-
-			}
-		}
-		return sum;
+		long key = chipKeys[0] ^ chipKeys[1];
+		return (int) (key ^ (key >>> 32));
 	}
   
   
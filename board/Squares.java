@@ -0,0 +1,166 @@
+package board;
+
+/* Squares.java */
+
+/**
+ *  Static geometry of the 8x8 Network board in bitboard form.  Square (x, y)
+ *  is bit number y * DIMENSION + x of a long, so bit 0 is the top-left
+ *  corner and bit 63 is the bottom-right corner.
+ **/
+
+public final class Squares {
+	public final static int DIMENSION = 8;
+	public final static int SQUARES = DIMENSION * DIMENSION;
+
+	// the four dead corners
+	public final static long CORNERS = bit(0, 0) | bit(DIMENSION - 1, 0) | bit(0, DIMENSION - 1)
+			| bit(DIMENSION - 1, DIMENSION - 1);
+	// WHITE goal areas, columns x == 0 and x == 7 (without the corners)
+	public final static long WHITE_GOAL_A = column(0) & ~CORNERS;
+	public final static long WHITE_GOAL_B = column(DIMENSION - 1) & ~CORNERS;
+	// BLACK goal areas, rows y == 0 and y == 7 (without the corners)
+	public final static long BLACK_GOAL_A = row(0) & ~CORNERS;
+	public final static long BLACK_GOAL_B = row(DIMENSION - 1) & ~CORNERS;
+
+	/*
+	 * the 8 ray directions; direction d lies on line d / 2 + 1, which is
+	 * MachinePlayer.HORIZONTAL, VERTICAL, DIAGONALF or DIAGONALB. Odd
+	 * directions run towards higher bit indices, even ones towards lower.
+	 */
+	public final static int WEST = 0;
+	public final static int EAST = 1;
+	public final static int NORTH = 2;
+	public final static int SOUTH = 3;
+	public final static int NORTHWEST = 4;
+	public final static int SOUTHEAST = 5;
+	public final static int NORTHEAST = 6;
+	public final static int SOUTHWEST = 7;
+	public final static int DIRECTIONS = 8;
+	private final static int[] DX = { -1, 1, 0, 0, -1, 1, 1, -1 };
+	private final static int[] DY = { 0, 0, -1, 1, -1, 1, -1, 1 };
+
+	// RAYS[direction][square] is the mask of all squares seen from square in
+	// that direction, up to the edge of the board
+	public final static long[][] RAYS = new long[DIRECTIONS][SQUARES];
+
+	// NEIGHBORS[square] is the mask of the up to 8 squares around square
+	public final static long[] NEIGHBORS = new long[SQUARES];
+
+	// AREA2[square] and AREA4[square] are the masks of all squares at most 2
+	// and 4 rows and columns away from square
+	public final static long[] AREA2 = new long[SQUARES];
+	public final static long[] AREA4 = new long[SQUARES];
+
+	// BETWEEN[a][b] is the mask of the squares strictly between a and b if
+	// they share a row, column or diagonal, and 0 otherwise
+	public final static long[][] BETWEEN = new long[SQUARES][SQUARES];
+
+	static {
+		for (int square = 0; square < SQUARES; square++) {
+			for (int other = 0; other < SQUARES; other++) {
+				int distance = Math.max(Math.abs(x(other) - x(square)), Math.abs(y(other) - y(square)));
+				if (distance <= 2) {
+					AREA2[square] |= 1L << other;
+				}
+				if (distance <= 4) {
+					AREA4[square] |= 1L << other;
+				}
+			}
+			for (int dy = -1; dy <= 1; dy++) {
+				for (int dx = -1; dx <= 1; dx++) {
+					int x = x(square) + dx;
+					int y = y(square) + dy;
+					if ((dx != 0 || dy != 0) && x >= 0 && x < DIMENSION && y >= 0 && y < DIMENSION) {
+						NEIGHBORS[square] |= bit(x, y);
+					}
+				}
+			}
+			for (int d = 0; d < DIRECTIONS; d++) {
+				int x = x(square) + DX[d];
+				int y = y(square) + DY[d];
+				while (x >= 0 && x < DIMENSION && y >= 0 && y < DIMENSION) {
+					BETWEEN[square][square(x, y)] = RAYS[d][square];
+					RAYS[d][square] |= bit(x, y);
+					x += DX[d];
+					y += DY[d];
+				}
+			}
+		}
+	}
+
+	private Squares() {
+	}
+
+	/**
+	 * square() converts a board coordinate into a bit index
+	 * @param x, the x-index
+	 * @param y, the y-index
+	 * @return the bit index of (x, y)
+	 */
+	public static int square(int x, int y) {
+		return y * DIMENSION + x;
+	}
+
+	/**
+	 * x() returns the x-index of a bit index
+	 */
+	public static int x(int square) {
+		return square & (DIMENSION - 1);
+	}
+
+	/**
+	 * y() returns the y-index of a bit index
+	 */
+	public static int y(int square) {
+		return square >>> 3;
+	}
+
+	/**
+	 * line() returns the line (MachinePlayer.HORIZONTAL, VERTICAL, DIAGONALF
+	 * or DIAGONALB) a ray direction lies on
+	 */
+	public static int line(int direction) {
+		return direction / 2 + 1;
+	}
+
+	/**
+	 * firstAlong() finds the first occupied square seen from a square in one
+	 * direction, with a single bit-scan
+	 * @param direction, one of the 8 ray directions
+	 * @param square, the bit index to look from
+	 * @param occupied, the bitboard of all chips
+	 * @return the bit index of the first chip on the ray, or -1 if there is none
+	 */
+	public static int firstAlong(int direction, int square, long occupied) {
+		long hits = RAYS[direction][square] & occupied;
+		if (hits == 0) {
+			return -1;
+		}
+		if ((direction & 1) != 0) {
+			return Long.numberOfTrailingZeros(hits);
+		}
+		return 63 - Long.numberOfLeadingZeros(hits);
+	}
+
+	/**
+	 * bit() returns the single-bit mask of (x, y)
+	 */
+	public static long bit(int x, int y) {
+		return 1L << square(x, y);
+	}
+
+	/**
+	 * row() returns the mask of all squares with the given y-index
+	 */
+	public static long row(int y) {
+		return 0xFFL << (y * DIMENSION);
+	}
+
+	/**
+	 * column() returns the mask of all squares with the given x-index
+	 */
+	public static long column(int x) {
+		return 0x0101010101010101L << x;
+	}
+
+}
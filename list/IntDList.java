@@ -0,0 +1,453 @@
+/* IntDList.java */
+
+package list;
+
+import java.util.Arrays;
+
+/**
+ *  An IntDList is a mutable doubly-linked list of ints.  Like DList it is
+ *  circularly-linked and has a sentinel node at the head of the list, and
+ *  like IntSList its nodes are indices into parallel int arrays (items,
+ *  next and prev links), so inserting an item allocates nothing unless the
+ *  arrays have to grow.  Unlike IntSList, pop() and remove() run in O(1)
+ *  time.
+ *
+ *  A node handle is only valid while its item is in the list; INVALID (the
+ *  handle returned by front() and back() of an empty list) is never valid.
+ **/
+
+public class IntDList {
+
+  /**
+   *  INVALID is the "invalid" node.
+   **/
+  public final static int INVALID = -1;
+
+  // node 0 is the sentinel
+  private final static int SENTINEL = 0;
+  // prev[] value of a node that is not in the list
+  private final static int FREE = -2;
+  private final static int CAPACITY = 16;
+
+  /**
+   *  size is the number of items in the list, not counting the sentinel.
+   *  items[node] is the item of a node, next[node] and prev[node] its
+   *  neighbors.  The nodes 0..used - 1 have been handed out; the removed
+   *  ones are chained from free through items[], and their prev[] is FREE.
+   **/
+
+  protected int size;
+  private int[] items;
+  private int[] next;
+  private int[] prev;
+  private int used;
+  private int free;
+
+  /* IntDList invariants:
+   *  1)  next[SENTINEL] and prev[SENTINEL] are nodes of the list, or
+   *      SENTINEL itself when the list is empty.
+   *  2)  For every node x in the list, if next[x] == y, then prev[y] == x.
+   *  3)  size is the number of nodes, NOT COUNTING the sentinel, that can be
+   *      reached from the sentinel by "next" links.
+   *  4)  A node 0 < x < used is in the list exactly when prev[x] != FREE.
+   **/
+
+  /**
+   *  IntDList() constructs an empty IntDList.
+   **/
+  public IntDList() {
+    this(CAPACITY);
+  }
+
+  /**
+   *  IntDList() constructs an empty IntDList with room for the given number
+   *  of items before its arrays grow.
+   *
+   *  @param capacity the initial number of items.
+   **/
+  public IntDList(int capacity) {
+    items = new int[Math.max(capacity, 1) + 1];
+    next = new int[items.length];
+    prev = new int[items.length];
+    next[SENTINEL] = SENTINEL;
+    prev[SENTINEL] = SENTINEL;
+    used = 1;
+    free = INVALID;
+    size = 0;
+  }
+
+  /**
+   *  newNode() takes a recycled node, or the next unused one, stores an
+   *  item in it and links it between two adjacent nodes.
+   *
+   *  @param item the item to store in the node.
+   *  @param before the node previous to this node.
+   *  @param after the node following this node.
+   *  @return the new node.
+   **/
+  private int newNode(int item, int before, int after) {
+    int node;
+    if (free != INVALID) {
+      node = free;
+      free = items[node];
+    } else {
+      if (used == items.length) {
+        items = Arrays.copyOf(items, 2 * used);
+        next = Arrays.copyOf(next, 2 * used);
+        prev = Arrays.copyOf(prev, 2 * used);
+      }
+      node = used++;
+    }
+    items[node] = item;
+    prev[node] = before;
+    next[node] = after;
+    next[before] = node;
+    prev[after] = node;
+    size++;
+    return node;
+  }
+
+  /**
+   *  isEmpty() returns true if this IntDList is empty, false otherwise.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   *  length() returns the length of this IntDList.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int length() {
+    return size;
+  }
+
+  /**
+   *  insertFront() inserts an item at the front of this IntDList.
+   *
+   *  @param item is the item to be inserted.
+   *
+   *  Performance:  runs in O(1) amortized time.
+   **/
+  public void insertFront(int item) {
+    newNode(item, SENTINEL, next[SENTINEL]);
+  }
+
+  /**
+   *  insertBack() inserts an item at the back of this IntDList.
+   *
+   *  @param item is the item to be inserted.
+   *
+   *  Performance:  runs in O(1) amortized time.
+   **/
+  public void insertBack(int item) {
+    newNode(item, prev[SENTINEL], SENTINEL);
+  }
+
+  /**
+   *  front() returns the node at the front of this IntDList, or INVALID if
+   *  the list is empty.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int front() {
+    return size == 0 ? INVALID : next[SENTINEL];
+  }
+
+  /**
+   *  back() returns the node at the back of this IntDList, or INVALID if
+   *  the list is empty.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int back() {
+    return size == 0 ? INVALID : prev[SENTINEL];
+  }
+
+  /**
+   *  isValidNode() returns true if the node is in this IntDList.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public boolean isValidNode(int node) {
+    return node > SENTINEL && node < used && prev[node] != FREE;
+  }
+
+  /**
+   *  next() returns the node following a node, or INVALID if the node is
+   *  the back of the list.
+   *
+   *  @param node a node of this IntDList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int next(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("next() called on invalid node");
+    }
+    return next[node] == SENTINEL ? INVALID : next[node];
+  }
+
+  /**
+   *  prev() returns the node previous to a node, or INVALID if the node is
+   *  the front of the list.
+   *
+   *  @param node a node of this IntDList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int prev(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("prev() called on invalid node");
+    }
+    return prev[node] == SENTINEL ? INVALID : prev[node];
+  }
+
+  /**
+   *  item() returns the item stored in a node.
+   *
+   *  @param node a node of this IntDList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int item(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("item() called on invalid node");
+    }
+    return items[node];
+  }
+
+  /**
+   *  setItem() sets the item stored in a node.
+   *
+   *  @param node a node of this IntDList.
+   *  @param item the new item.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public void setItem(int node, int item) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("setItem() called on invalid node");
+    }
+    items[node] = item;
+  }
+
+  /**
+   *  remove() removes a node from this IntDList.  The node becomes invalid.
+   *
+   *  @param node a node of this IntDList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public void remove(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("remove() called on invalid node");
+    }
+    next[prev[node]] = next[node];
+    prev[next[node]] = prev[node];
+    items[node] = free;
+    prev[node] = FREE;
+    free = node;
+    size--;
+  }
+
+  /**
+   *  pop() removes the item at the back of this IntDList, like SList.pop().
+   *
+   *  @return the removed item.
+   *  @exception InvalidNodeException if the list is empty.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int pop() throws InvalidNodeException {
+    int node = back();
+    int item = item(node);
+    remove(node);
+    return item;
+  }
+
+  /**
+   *  Clone() returns an independent copy of this IntDList.  The arrays are
+   *  copied as they are, so the nodes of the copy have the same indices.
+   *
+   *  Performance:  runs in O(n) time, where n is the number of nodes this
+   *  list has handed out; it allocates only the three arrays.
+   **/
+  public IntDList Clone() {
+    IntDList list = new IntDList(used - 1);
+    System.arraycopy(items, 0, list.items, 0, used);
+    System.arraycopy(next, 0, list.next, 0, used);
+    System.arraycopy(prev, 0, list.prev, 0, used);
+    list.used = used;
+    list.free = free;
+    list.size = size;
+    return list;
+  }
+
+  /**
+   *  toString() returns a String representation of this IntDList.
+   *
+   *  Performance:  runs in O(n) time, where n is the length of the list.
+   **/
+  public String toString() {
+    StringBuilder result = new StringBuilder("[  ");
+    for (int node = next[SENTINEL]; node != SENTINEL; node = next[node]) {
+      result.append(items[node]).append("  ");
+    }
+    return result.append("]").toString();
+  }
+
+  private static void testInvalidNode(IntDList l, int p) {
+    System.out.println("l.isValidNode(p) should be false: " + l.isValidNode(p));
+    try {
+      l.item(p);
+      System.out.println("l.item(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.item(p) should throw an exception, and did.");
+    }
+    try {
+      l.setItem(p, 0);
+      System.out.println("l.setItem(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.setItem(p) should throw an exception, and did.");
+    }
+    try {
+      l.next(p);
+      System.out.println("l.next(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.next(p) should throw an exception, and did.");
+    }
+    try {
+      l.prev(p);
+      System.out.println("l.prev(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.prev(p) should throw an exception, and did.");
+    }
+    try {
+      l.remove(p);
+      System.out.println("l.remove(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.remove(p) should throw an exception, and did.");
+    }
+  }
+
+  private static void testEmpty() {
+    IntDList l = new IntDList();
+    System.out.println("An empty list should be [  ]: " + l);
+    System.out.println("l.isEmpty() should be true: " + l.isEmpty());
+    System.out.println("l.length() should be 0: " + l.length());
+    System.out.println("Finding front node p of l.");
+    testInvalidNode(l, l.front());
+    System.out.println("Finding back node p of l.");
+    testInvalidNode(l, l.back());
+    try {
+      l.pop();
+      System.out.println("l.pop() should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.pop() should throw an exception, and did.");
+    }
+    l.insertFront(10);
+    System.out.println("l after insertFront(10) should be [  10  ]: " + l);
+  }
+
+  public static void main(String[] argv) {
+    testEmpty();
+    IntDList l = new IntDList(2);
+    l.insertFront(3);
+    l.insertFront(2);
+    l.insertFront(1);
+    System.out.println("l is a list of 3 elements, grown past its capacity of 2: "
+                       + l);
+    try {
+      int n;
+      int i = 1;
+      for (n = l.front(); l.isValidNode(n); n = l.next(n)) {
+        System.out.println("l.item(n) should be " + i + ": " + l.item(n));
+        l.setItem(n, l.item(n) * 2);
+        System.out.println("l.item(n) should be " + 2 * i + ": " + l.item(n));
+        i++;
+      }
+      System.out.println("After doubling all elements of l: " + l);
+      testInvalidNode(l, n);
+
+      i = 3;
+      for (n = l.back(); l.isValidNode(n); n = l.prev(n)) {
+        System.out.println("l.item(n) should be " + 2 * i + ": " + l.item(n));
+        i--;
+      }
+      testInvalidNode(l, n);
+
+      l.insertBack(8);
+      System.out.println("l after insertBack(8) should be [  2  4  6  8  ]: "
+                         + l);
+      System.out.println("l.item(l.back()) should be 8: " + l.item(l.back()));
+      System.out.println("l.pop() should be 8: " + l.pop());
+      System.out.println("l is now [  2  4  6  ]: " + l);
+
+      n = l.next(l.front());
+      System.out.println("Removing middle element (4) of l: " + l.item(n));
+      l.remove(n);
+      System.out.println("l is now [  2  6  ]: " + l);
+      testInvalidNode(l, n);
+      int removed = n;
+      l.insertBack(10);
+      System.out.println("The new back node should reuse the removed node: "
+                         + (l.back() == removed));
+      System.out.println("l is now [  2  6  10  ]: " + l);
+
+      n = l.back();
+      System.out.println("Removing end element (10) of l: " + l.item(n));
+      l.remove(n);
+      l.insertBack(12);
+      System.out.println("l after insertBack(12) should be [  2  6  12  ]: "
+                         + l);
+      n = l.front();
+      System.out.println("Removing first element (2) of l: " + l.item(n));
+      l.remove(n);
+      l.insertFront(14);
+      System.out.println("l after insertFront(14) should be [  14  6  12  ]: "
+                         + l);
+
+      IntDList c = l.Clone();
+      c.setItem(c.front(), 16);
+      c.insertBack(18);
+      l.pop();
+      System.out.println("Clone c of l, changed, should be [  16  6  12  18  ]: "
+                         + c);
+      System.out.println("l, popped, should be [  14  6  ]: " + l);
+
+      System.out.println("l.pop() should be 6: " + l.pop());
+      System.out.println("l.pop() should be 14: " + l.pop());
+      System.out.println("l is now empty: " + l + ", length " + l.length());
+      testInvalidNode(l, l.front());
+      testInvalidNode(l, l.back());
+
+      for (i = 0; i < 100; i++) {
+        l.insertBack(i);
+      }
+      boolean inOrder = true;
+      i = 0;
+      for (n = l.front(); l.isValidNode(n); n = l.next(n)) {
+        inOrder = inOrder && l.item(n) == i;
+        i++;
+      }
+      System.out.println("After 100 insertBack() calls, l.length() should be "
+                         + "100: " + l.length());
+      System.out.println("The items should be 0..99 in order: "
+                         + (inOrder && i == 100));
+    } catch (InvalidNodeException lbe) {
+      System.err.println ("Caught InvalidNodeException that should not happen."
+                          );
+      System.err.println ("Aborting the testing code.");
+    }
+  }
+
+}
@@ -0,0 +1,446 @@
+/* IntSList.java */
+
+package list;
+
+import java.util.Arrays;
+
+/**
+ *  An IntSList is a mutable singly-linked list of ints.  It has the same
+ *  insertFront(), insertBack(), front(), back() and pop() semantics as
+ *  SList, but its nodes are not objects:  the items and the "next" links are
+ *  kept in two parallel int arrays, and a node is an index into them.
+ *  Inserting an item allocates nothing unless the arrays have to grow, and
+ *  removed nodes are recycled.
+ *
+ *  A node handle is only valid while its item is in the list; INVALID (the
+ *  handle returned by front() and back() of an empty list) is never valid.
+ **/
+
+public class IntSList {
+
+  /**
+   *  INVALID is the "invalid" node.
+   **/
+  public final static int INVALID = -1;
+
+  // next[] value of a node that is not in the list
+  private final static int FREE = -2;
+  private final static int CAPACITY = 16;
+
+  /**
+   *  size is the number of items in the list.
+   *  head is the first node, tail the last node.
+   *  items[node] is the item of a node, next[node] the node following it or
+   *  INVALID.  The nodes 0..used - 1 have been handed out; the removed ones
+   *  are chained from free through items[], and their next[] is FREE.
+   **/
+
+  protected int size;
+  protected int head;
+  protected int tail;
+  private int[] items;
+  private int[] next;
+  private int used;
+  private int free;
+
+  /* IntSList invariants:
+   *  1)  Either head == INVALID and tail == INVALID, or next[tail] == INVALID
+   *      and tail can be reached from head by zero or more "next" links.
+   *  2)  size is the number of nodes that can be reached from head
+   *      (including head itself) by "next" links.
+   *  3)  A node 0 <= x < used is in the list exactly when next[x] != FREE.
+   **/
+
+  /**
+   *  IntSList() constructs an empty IntSList.
+   **/
+  public IntSList() {
+    this(CAPACITY);
+  }
+
+  /**
+   *  IntSList() constructs an empty IntSList with room for the given number
+   *  of items before its arrays grow.
+   *
+   *  @param capacity the initial number of nodes, at least 1.
+   **/
+  public IntSList(int capacity) {
+    items = new int[Math.max(capacity, 1)];
+    next = new int[items.length];
+    head = INVALID;
+    tail = INVALID;
+    free = INVALID;
+    size = 0;
+  }
+
+  /**
+   *  newNode() takes a recycled node, or the next unused one, and stores
+   *  an item in it.
+   *
+   *  @param item the item to store in the node.
+   *  @param following the node following this node.
+   *  @return the new node.
+   **/
+  private int newNode(int item, int following) {
+    int node;
+    if (free != INVALID) {
+      node = free;
+      free = items[node];
+    } else {
+      if (used == items.length) {
+        items = Arrays.copyOf(items, 2 * used);
+        next = Arrays.copyOf(next, 2 * used);
+      }
+      node = used++;
+    }
+    items[node] = item;
+    next[node] = following;
+    return node;
+  }
+
+  /**
+   *  freeNode() puts a node that left the list on the free chain.
+   **/
+  private void freeNode(int node) {
+    items[node] = free;
+    next[node] = FREE;
+    free = node;
+  }
+
+  /**
+   *  isEmpty() returns true if this IntSList is empty, false otherwise.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   *  length() returns the length of this IntSList.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int length() {
+    return size;
+  }
+
+  /**
+   *  insertFront() inserts an item at the front of this IntSList.
+   *
+   *  @param item is the item to be inserted.
+   *
+   *  Performance:  runs in O(1) amortized time.
+   **/
+  public void insertFront(int item) {
+    head = newNode(item, head);
+    if (size == 0) {
+      tail = head;
+    }
+    size++;
+  }
+
+  /**
+   *  insertBack() inserts an item at the back of this IntSList.
+   *
+   *  @param item is the item to be inserted.
+   *
+   *  Performance:  runs in O(1) amortized time.
+   **/
+  public void insertBack(int item) {
+    int node = newNode(item, INVALID);
+    if (head == INVALID) {
+      head = node;
+    } else {
+      next[tail] = node;
+    }
+    tail = node;
+    size++;
+  }
+
+  /**
+   *  front() returns the node at the front of this IntSList, or INVALID if
+   *  the list is empty.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int front() {
+    return head;
+  }
+
+  /**
+   *  back() returns the node at the back of this IntSList, or INVALID if
+   *  the list is empty.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int back() {
+    return tail;
+  }
+
+  /**
+   *  isValidNode() returns true if the node is in this IntSList.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public boolean isValidNode(int node) {
+    return node >= 0 && node < used && next[node] != FREE;
+  }
+
+  /**
+   *  next() returns the node following a node, or INVALID if the node is
+   *  the back of the list.
+   *
+   *  @param node a node of this IntSList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int next(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("next() called on invalid node");
+    }
+    return next[node];
+  }
+
+  /**
+   *  item() returns the item stored in a node.
+   *
+   *  @param node a node of this IntSList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public int item(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("item() called on invalid node");
+    }
+    return items[node];
+  }
+
+  /**
+   *  setItem() sets the item stored in a node.
+   *
+   *  @param node a node of this IntSList.
+   *  @param item the new item.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(1) time.
+   **/
+  public void setItem(int node, int item) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("setItem() called on invalid node");
+    }
+    items[node] = item;
+  }
+
+  /**
+   *  remove() removes a node from this IntSList.  The node becomes invalid.
+   *
+   *  @param node a node of this IntSList.
+   *  @exception InvalidNodeException if node is invalid.
+   *
+   *  Performance:  runs in O(this.size) time.
+   **/
+  public void remove(int node) throws InvalidNodeException {
+    if (!isValidNode(node)) {
+      throw new InvalidNodeException("remove() called on invalid node");
+    }
+    if (node == head) {
+      head = next[node];
+      if (head == INVALID) {
+        tail = INVALID;
+      }
+    } else {
+      int prev = head;
+      while (next[prev] != node) {
+        prev = next[prev];
+      }
+      next[prev] = next[node];
+      if (node == tail) {
+        tail = prev;
+      }
+    }
+    freeNode(node);
+    size--;
+  }
+
+  /**
+   *  pop() removes the item at the back of this IntSList, like SList.pop().
+   *
+   *  @return the removed item.
+   *  @exception InvalidNodeException if the list is empty.
+   *
+   *  Performance:  runs in O(this.size) time.
+   **/
+  public int pop() throws InvalidNodeException {
+    int item = item(tail);
+    remove(tail);
+    return item;
+  }
+
+  /**
+   *  Clone() returns an independent copy of this IntSList.  The arrays are
+   *  copied as they are, so the nodes of the copy have the same indices.
+   *
+   *  Performance:  runs in O(n) time, where n is the number of nodes this
+   *  list has handed out; it allocates only the two arrays.
+   **/
+  public IntSList Clone() {
+    IntSList list = new IntSList(used);
+    System.arraycopy(items, 0, list.items, 0, used);
+    System.arraycopy(next, 0, list.next, 0, used);
+    list.used = used;
+    list.free = free;
+    list.head = head;
+    list.tail = tail;
+    list.size = size;
+    return list;
+  }
+
+  /**
+   *  toString() returns a String representation of this IntSList.
+   *
+   *  Performance:  runs in O(n) time, where n is the length of the list.
+   **/
+  public String toString() {
+    StringBuilder result = new StringBuilder("[  ");
+    for (int node = head; node != INVALID; node = next[node]) {
+      result.append(items[node]).append("  ");
+    }
+    return result.append("]").toString();
+  }
+
+  private static void testInvalidNode(IntSList l, int p) {
+    System.out.println("l.isValidNode(p) should be false: " + l.isValidNode(p));
+    try {
+      l.item(p);
+      System.out.println("l.item(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.item(p) should throw an exception, and did.");
+    }
+    try {
+      l.setItem(p, 0);
+      System.out.println("l.setItem(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.setItem(p) should throw an exception, and did.");
+    }
+    try {
+      l.next(p);
+      System.out.println("l.next(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.next(p) should throw an exception, and did.");
+    }
+    try {
+      l.remove(p);
+      System.out.println("l.remove(p) should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.remove(p) should throw an exception, and did.");
+    }
+  }
+
+  private static void testEmpty() {
+    IntSList l = new IntSList();
+    System.out.println("An empty list should be [  ]: " + l);
+    System.out.println("l.isEmpty() should be true: " + l.isEmpty());
+    System.out.println("l.length() should be 0: " + l.length());
+    System.out.println("Finding front node p of l.");
+    testInvalidNode(l, l.front());
+    System.out.println("Finding back node p of l.");
+    testInvalidNode(l, l.back());
+    try {
+      l.pop();
+      System.out.println("l.pop() should throw an exception, but didn't.");
+    } catch (InvalidNodeException lbe) {
+      System.out.println("l.pop() should throw an exception, and did.");
+    }
+    l.insertFront(10);
+    System.out.println("l after insertFront(10) should be [  10  ]: " + l);
+  }
+
+  public static void main(String[] argv) {
+    testEmpty();
+    IntSList l = new IntSList(2);
+    l.insertFront(3);
+    l.insertFront(2);
+    l.insertFront(1);
+    System.out.println("l is a list of 3 elements, grown past its capacity of 2: "
+                       + l);
+    try {
+      int n;
+      int i = 1;
+      for (n = l.front(); l.isValidNode(n); n = l.next(n)) {
+        System.out.println("l.item(n) should be " + i + ": " + l.item(n));
+        l.setItem(n, l.item(n) * 2);
+        System.out.println("l.item(n) should be " + 2 * i + ": " + l.item(n));
+        i++;
+      }
+      System.out.println("After doubling all elements of l: " + l);
+      testInvalidNode(l, n);
+
+      l.insertBack(8);
+      System.out.println("l after insertBack(8) should be [  2  4  6  8  ]: "
+                         + l);
+      System.out.println("l.item(l.back()) should be 8: " + l.item(l.back()));
+      System.out.println("l.pop() should be 8: " + l.pop());
+      System.out.println("l is now [  2  4  6  ]: " + l);
+
+      n = l.next(l.front());
+      System.out.println("Removing middle element (4) of l: " + l.item(n));
+      l.remove(n);
+      System.out.println("l is now [  2  6  ]: " + l);
+      testInvalidNode(l, n);
+      int removed = n;
+      l.insertBack(10);
+      System.out.println("The new back node should reuse the removed node: "
+                         + (l.back() == removed));
+      System.out.println("l is now [  2  6  10  ]: " + l);
+
+      n = l.back();
+      System.out.println("Removing end element (10) of l: " + l.item(n));
+      l.remove(n);
+      l.insertBack(12);
+      System.out.println("l after insertBack(12) should be [  2  6  12  ]: "
+                         + l);
+      n = l.front();
+      System.out.println("Removing first element (2) of l: " + l.item(n));
+      l.remove(n);
+      l.insertFront(14);
+      System.out.println("l after insertFront(14) should be [  14  6  12  ]: "
+                         + l);
+
+      IntSList c = l.Clone();
+      c.setItem(c.front(), 16);
+      c.insertBack(18);
+      l.pop();
+      System.out.println("Clone c of l, changed, should be [  16  6  12  18  ]: "
+                         + c);
+      System.out.println("l, popped, should be [  14  6  ]: " + l);
+
+      System.out.println("l.pop() should be 6: " + l.pop());
+      System.out.println("l.pop() should be 14: " + l.pop());
+      System.out.println("l is now empty: " + l + ", length " + l.length());
+      testInvalidNode(l, l.front());
+      testInvalidNode(l, l.back());
+
+      for (i = 0; i < 100; i++) {
+        l.insertBack(i);
+      }
+      boolean inOrder = true;
+      i = 0;
+      for (n = l.front(); l.isValidNode(n); n = l.next(n)) {
+        inOrder = inOrder && l.item(n) == i;
+        i++;
+      }
+      System.out.println("After 100 insertBack() calls, l.length() should be "
+                         + "100: " + l.length());
+      System.out.println("The items should be 0..99 in order: "
+                         + (inOrder && i == 100));
+    } catch (InvalidNodeException lbe) {
+      System.err.println ("Caught InvalidNodeException that should not happen."
+                          );
+      System.err.println ("Aborting the testing code.");
+    }
+  }
+
+}
@@ -0,0 +1,128 @@
+/* ListBenchmark.java */
+
+package list;
+
+/**
+ *  ListBenchmark times SList against IntSList and IntDList on the two
+ *  workloads of MachinePlayer.findPath():  pushing a path of chips and
+ *  popping it again from the back, and cloning a path.  Run as
+ *
+ *      java list.ListBenchmark [rounds] [length]
+ *
+ *  The first pass of each workload only warms up the JIT.
+ **/
+
+public class ListBenchmark {
+
+  private final static String[] NAMES = { "SList:", "IntSList:", "IntDList:" };
+
+  public static void main(String[] argv) {
+    int rounds = argv.length > 0 ? Integer.parseInt(argv[0]) : 1000000;
+    int length = argv.length > 1 ? Integer.parseInt(argv[1]) : 10;
+    try {
+      for (int pass = 0; pass < 2; pass++) {
+        if (pass == 1) {
+          System.out.println(rounds + " rounds, " + length + " items");
+        }
+        for (int list = 0; list < NAMES.length; list++) {
+          long sum = 0;
+          long start = System.nanoTime();
+          for (int round = 0; round < rounds; round++) {
+            sum += pushPop(list, length, round);
+          }
+          long pushPop = System.nanoTime() - start;
+          start = System.nanoTime();
+          sum += cloneLists(list, length, rounds);
+          long clone = System.nanoTime() - start;
+          if (pass == 1) {
+            System.out.println(String.format(
+                "%-10s push/pop %6.1f ns, clone %6.1f ns  (%d)", NAMES[list],
+                (double) pushPop / rounds, (double) clone / rounds, sum));
+          }
+        }
+      }
+    } catch (InvalidNodeException lbe) {
+      System.err.println ("Caught InvalidNodeException that should not happen."
+                          );
+    }
+  }
+
+  /**
+   *  pushPop() fills a new list of the given kind from the back and pops it
+   *  empty.
+   *
+   *  @param list the index of the list kind in NAMES.
+   *  @param length the number of items.
+   *  @param round the first item.
+   *  @return the sum of the popped items.
+   **/
+  private static long pushPop(int list, int length, int round)
+    throws InvalidNodeException {
+    long sum = 0;
+    if (list == 0) {
+      SList items = new SList();
+      for (int i = 0; i < length; i++) {
+        items.insertBack(round + i);
+      }
+      while (!items.isEmpty()) {
+        sum += (Integer) items.pop();
+      }
+    } else if (list == 1) {
+      IntSList items = new IntSList(length);
+      for (int i = 0; i < length; i++) {
+        items.insertBack(round + i);
+      }
+      while (!items.isEmpty()) {
+        sum += items.pop();
+      }
+    } else {
+      IntDList items = new IntDList(length);
+      for (int i = 0; i < length; i++) {
+        items.insertBack(round + i);
+      }
+      while (!items.isEmpty()) {
+        sum += items.pop();
+      }
+    }
+    return sum;
+  }
+
+  /**
+   *  cloneLists() clones a list of the given kind the given number of times.
+   *
+   *  @param list the index of the list kind in NAMES.
+   *  @param length the number of items.
+   *  @param rounds the number of clones.
+   *  @return the sum of the clones' lengths.
+   **/
+  private static long cloneLists(int list, int length, int rounds) {
+    long sum = 0;
+    if (list == 0) {
+      SList items = new SList();
+      for (int i = 0; i < length; i++) {
+        items.insertBack(i);
+      }
+      for (int round = 0; round < rounds; round++) {
+        sum += items.Clone().length();
+      }
+    } else if (list == 1) {
+      IntSList items = new IntSList(length);
+      for (int i = 0; i < length; i++) {
+        items.insertBack(i);
+      }
+      for (int round = 0; round < rounds; round++) {
+        sum += items.Clone().length();
+      }
+    } else {
+      IntDList items = new IntDList(length);
+      for (int i = 0; i < length; i++) {
+        items.insertBack(i);
+      }
+      for (int round = 0; round < rounds; round++) {
+        sum += items.Clone().length();
+      }
+    }
+    return sum;
+  }
+
+}
@@ -0,0 +1,621 @@
+/* Benchmark.java */
+
+package player;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Random;
+
+import board.SimpleBoard;
+
+/**
+ *  Command line benchmarks for MachinePlayer.  Run as
+ *
+ *      java player.Benchmark <name> [arguments]
+ *
+ *  where <name> is one of the benchmarks listed in main().  Results are
+ *  printed to standard output.
+ */
+public class Benchmark {
+
+	// stream that discards everything, used to hide chooseMove()'s printing
+	private final static PrintStream QUIET = new PrintStream(new OutputStream() {
+		public void write(int b) {
+		}
+	});
+
+	public static void main(String[] args) {
+		String name = args.length > 0 ? args[0] : "";
+		if (name.equals("zobrist")) {
+			zobrist(intArg(args, 1, 200), intArg(args, 2, 1));
+		} else if (name.equals("ordering")) {
+			ordering(intArg(args, 1, 10), intArg(args, 2, 3));
+		} else if (name.equals("threads")) {
+			threads(intArg(args, 1, 3), intArg(args, 2, 4), intArg(args, 3, 8), false);
+		} else if (name.equals("smp")) {
+			threads(intArg(args, 1, 3), intArg(args, 2, 4), intArg(args, 3, 8), true);
+		} else if (name.equals("pvs")) {
+			pvs(intArg(args, 1, 10), intArg(args, 2, 4));
+		} else if (name.equals("lmr")) {
+			lmr(intArg(args, 1, 10), intArg(args, 2, 1000));
+		} else if (name.equals("lazyeval")) {
+			lazyEval(intArg(args, 1, 10), intArg(args, 2, 4));
+		} else if (name.equals("evalcache")) {
+			evalCache(intArg(args, 1, 10), intArg(args, 2, 4));
+		} else if (name.equals("block")) {
+			block(intArg(args, 1, 10), intArg(args, 2, 4));
+		} else if (name.equals("threats")) {
+			threats(intArg(args, 1, 20), intArg(args, 2, 2));
+		} else if (name.equals("reuse")) {
+			reuse(intArg(args, 1, 4), intArg(args, 2, 4));
+		} else {
+			System.out.println("usage: java player.Benchmark zobrist [games] [depth]");
+			System.out.println("       java player.Benchmark ordering [games] [depth]");
+			System.out.println("       java player.Benchmark threads [games] [depth] [maxThreads]");
+			System.out.println("       java player.Benchmark smp [games] [depth] [maxThreads]");
+			System.out.println("       java player.Benchmark pvs [games] [depth]");
+			System.out.println("       java player.Benchmark lmr [positions] [millis]");
+			System.out.println("       java player.Benchmark lazyeval [games] [depth]");
+			System.out.println("       java player.Benchmark evalcache [games] [depth]");
+			System.out.println("       java player.Benchmark block [games] [depth]");
+			System.out.println("       java player.Benchmark threats [games] [threats]");
+			System.out.println("       java player.Benchmark reuse [games] [depth]");
+		}
+	}
+
+	/**
+	 * intArg() reads an optional integer argument
+	 */
+	private static int intArg(String[] args, int index, int defaultValue) {
+		return args.length > index ? Integer.parseInt(args[index]) : defaultValue;
+	}
+
+	/**
+	 * chooseQuietly() calls chooseMove() with standard output disabled
+	 * @return the chosen move, or null if the player has none
+	 */
+	static Move chooseQuietly(MachinePlayer player) {
+		PrintStream out = System.out;
+		System.setOut(QUIET);
+		try {
+			return player.chooseMove();
+		} finally {
+			System.setOut(out);
+		}
+	}
+
+	/**
+	 * selfPlay() plays one game between two MachinePlayers. The first
+	 * randomPlies moves are random legal ADD moves drawn from random, so
+	 * that different games reach different positions.
+	 * @param depth, the search depth of both players
+	 * @param randomPlies, number of random opening moves
+	 * @param maxPlies, the game is stopped after this many moves
+	 * @param random, source of the opening moves
+	 * @return after every move, a clone of the player to move next
+	 */
+	static ArrayList<MachinePlayer> selfPlay(int depth, int randomPlies, int maxPlies, Random random) {
+		ArrayList<MachinePlayer> positions = new ArrayList<MachinePlayer>();
+		int oldDepth = MachinePlayer.SEARCHDEPTH;
+		MachinePlayer.SEARCHDEPTH = depth;
+		MachinePlayer[] players = { new MachinePlayer(MachinePlayer.BLACK_SECOND),
+				new MachinePlayer(MachinePlayer.WHITE_FIRST) };
+		int turn = MachinePlayer.WHITE_FIRST;
+		try {
+			for (int ply = 0; ply < maxPlies; ply++) {
+				MachinePlayer mover = players[turn];
+				Move m = null;
+				if (ply < randomPlies) {
+					Move[] moves = mover.findAllMoves(turn);
+					int count = 0;
+					while (count < moves.length && moves[count] != null) {
+						count++;
+					}
+					if (count > 0) {
+						m = moves[random.nextInt(count)];
+						mover.forceMove(m);
+					}
+				} else {
+					m = chooseQuietly(mover);
+				}
+				if (m == null || !players[1 - turn].opponentMove(m)) {
+					break;
+				}
+				turn = 1 - turn;
+				positions.add(players[turn].clone());
+			}
+		} finally {
+			MachinePlayer.SEARCHDEPTH = oldDepth;
+		}
+		return positions;
+	}
+
+	/**
+	 * zobrist() collects positions from self-play games and counts how many
+	 * distinct positions share a key, for the 64-bit positionKey(), for
+	 * SimpleBoard.hashCode(), and for the old base-3 hash code.
+	 * @param games, number of self-play games
+	 * @param depth, search depth used in the games
+	 */
+	static void zobrist(int games, int depth) {
+		ArrayList<SimpleBoard> positions = new ArrayList<SimpleBoard>();
+		ArrayList<Integer> sides = new ArrayList<Integer>();
+		Random random = new Random(1);
+		long start = System.currentTimeMillis();
+		for (int game = 0; game < games; game++) {
+			for (MachinePlayer position : selfPlay(depth, 4, 60, random)) {
+				positions.add(position.getBoard());
+				sides.add(position.getColor());
+			}
+		}
+		long elapsed = System.currentTimeMillis() - start;
+
+		HashMap<SimpleBoard, Integer> distinct = new HashMap<SimpleBoard, Integer>();
+		HashMap<Long, SimpleBoard> byKey = new HashMap<Long, SimpleBoard>();
+		HashMap<Integer, SimpleBoard> byHash = new HashMap<Integer, SimpleBoard>();
+		HashMap<Integer, SimpleBoard> byOldHash = new HashMap<Integer, SimpleBoard>();
+		int keyCollisions = 0;
+		int hashCollisions = 0;
+		int oldHashCollisions = 0;
+		for (int i = 0; i < positions.size(); i++) {
+			SimpleBoard board = positions.get(i);
+			int side = sides.get(i);
+			if (distinct.containsKey(board)) {
+				continue;
+			}
+			distinct.put(board, side);
+			SimpleBoard other = byKey.put(board.positionKey(side), board);
+			if (other != null) {
+				keyCollisions++;
+			}
+			other = byHash.put(board.hashCode(), board);
+			if (other != null) {
+				hashCollisions++;
+			}
+			other = byOldHash.put(oldHashCode(board), board);
+			if (other != null) {
+				oldHashCollisions++;
+			}
+		}
+		int n = distinct.size();
+		System.out.println(games + " games, " + positions.size() + " positions, " + n + " distinct ("
+				+ elapsed + " ms)");
+		System.out.println("positionKey() collisions:   " + keyCollisions + " (" + rate(keyCollisions, n) + ")");
+		System.out.println("hashCode() collisions:      " + hashCollisions + " (" + rate(hashCollisions, n) + ")");
+		System.out.println("base-3 hash collisions:     " + oldHashCollisions + " (" + rate(oldHashCollisions, n) + ")");
+	}
+
+	/**
+	 * ordering() compares the number of nodes a fixed-depth search visits
+	 * with move ordering (table move, killers, history) against raster order,
+	 * over positions from self-play games
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 */
+	static void ordering(int games, int depth) {
+		compare(positions(games, 2, 40), depth, new Option() {
+			public boolean on() {
+				return MachinePlayer.ORDERING;
+			}
+
+			public void set(boolean on) {
+				MachinePlayer.ORDERING = on;
+			}
+		}, "raster order:", "ordered:");
+	}
+
+	/**
+	 * pvs() compares the number of nodes a fixed-depth search visits with
+	 * principal variation search and aspiration windows against plain
+	 * alpha-beta, over positions from self-play games
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 */
+	static void pvs(int games, int depth) {
+		compare(positions(games, 2, 40), depth, new Option() {
+			public boolean on() {
+				return MachinePlayer.PVS;
+			}
+
+			public void set(boolean on) {
+				MachinePlayer.PVS = on;
+			}
+		}, "alpha-beta:", "PVS:");
+	}
+
+	/**
+	 * lmr() compares how deep a timed search gets with and without late
+	 * move reductions, for ADD phase and STEP phase positions from
+	 * self-play games
+	 * @param count, number of positions of each phase
+	 * @param millis, the time for each search
+	 */
+	static void lmr(int count, int millis) {
+		ArrayList<MachinePlayer> add = new ArrayList<MachinePlayer>();
+		ArrayList<MachinePlayer> step = new ArrayList<MachinePlayer>();
+		Random random = new Random(6);
+		while (add.size() < count || step.size() < count) {
+			for (MachinePlayer position : selfPlay(1, 6, 60, random)) {
+				ArrayList<MachinePlayer> phase = position.findAllMoves(position.getColor()).length > 60 ? step : add;
+				if (phase.size() < count) {
+					phase.add(position);
+				}
+			}
+		}
+		boolean oldLmr = MachinePlayer.LMR;
+		int oldThreads = MachinePlayer.THREADS;
+		MachinePlayer.THREADS = 1;
+		try {
+			for (int run = 0; run < 2; run++) {
+				MachinePlayer.LMR = run == 1;
+				System.out.println(run == 0 ? "without reductions:" : "with reductions:");
+				for (int phase = 0; phase < 2; phase++) {
+					long depths = 0;
+					long nodes = 0;
+					for (MachinePlayer position : phase == 0 ? add : step) {
+						MachinePlayer player = position.clone();
+						player.forget();
+						player.setSearchDepth(64);
+						player.iterativeDeepening(System.currentTimeMillis() + millis);
+						depths += player.getDepth();
+						nodes += player.getNodes();
+					}
+					System.out.println((phase == 0 ? "  ADD:  " : "  STEP: ") + "average depth "
+							+ String.format("%.2f", (double) depths / count) + ", " + nodes / count
+							+ " nodes per search");
+				}
+			}
+		} finally {
+			MachinePlayer.LMR = oldLmr;
+			MachinePlayer.THREADS = oldThreads;
+		}
+	}
+
+	/**
+	 * lazyEval() counts the checkPaths() calls of fixed-depth searches that
+	 * score every node against searches that score only the horizon and the
+	 * end of the game, over positions from self-play games
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 */
+	static void lazyEval(int games, int depth) {
+		ArrayList<MachinePlayer> positions = positions(games, 5, 80);
+		System.out.println(positions.size() + " positions, depth " + depth);
+		boolean oldLazyEval = MachinePlayer.LAZYEVAL;
+		int oldThreads = MachinePlayer.THREADS;
+		MachinePlayer.THREADS = 1;
+		try {
+			// the first pass only warms up the JIT
+			countNodes(positions, depth);
+			for (int run = 0; run < 2; run++) {
+				MachinePlayer.LAZYEVAL = run == 1;
+				long nodes = 0;
+				long evaluations = 0;
+				long start = System.currentTimeMillis();
+				for (MachinePlayer position : positions) {
+					MachinePlayer player = position.clone();
+					player.forget();
+					player.setSearchDepth(depth);
+					player.iterativeDeepening(Long.MAX_VALUE);
+					nodes += player.getNodes();
+					evaluations += player.getEvaluations();
+				}
+				long millis = System.currentTimeMillis() - start;
+				System.out.println((run == 0 ? "every node:     " : "horizon only:   ") + nodes + " nodes, "
+						+ evaluations / positions.size() + " evaluations per search, " + millis + " ms");
+			}
+		} finally {
+			MachinePlayer.LAZYEVAL = oldLazyEval;
+			MachinePlayer.THREADS = oldThreads;
+		}
+	}
+
+	/**
+	 * evalCache() compares the time of fixed-depth searches with and without
+	 * the evaluation cache, over positions from self-play games, and prints
+	 * the hit rate of the cache
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 */
+	static void evalCache(int games, int depth) {
+		ArrayList<MachinePlayer> positions = positions(games, 5, 80);
+		final int megabytes = MachinePlayer.EVALMEGABYTES;
+		compare(positions, depth, new Option() {
+			public boolean on() {
+				return MachinePlayer.EVALMEGABYTES > 0;
+			}
+
+			public void set(boolean on) {
+				MachinePlayer.EVALMEGABYTES = on ? megabytes : 0;
+			}
+		}, "no cache:", "cache:");
+		long probes = 0;
+		long hits = 0;
+		for (MachinePlayer position : positions) {
+			MachinePlayer player = position.clone();
+			player.forget();
+			player.setSearchDepth(depth);
+			player.iterativeDeepening(Long.MAX_VALUE);
+			probes += player.getEvalProbes();
+			hits += player.getEvalHits();
+		}
+		System.out.println("hit rate:       " + rate(hits, probes) + " of " + probes + " evaluations, " + megabytes
+				+ " MB cache");
+	}
+
+	/**
+	 * block() compares the number of nodes a fixed-depth search visits with
+	 * and without restricting the moves to blocking moves when the opponent
+	 * threatens to complete a network, over positions from self-play games
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 */
+	static void block(int games, int depth) {
+		compare(positions(games, 5, 80), depth, new Option() {
+			public boolean on() {
+				return MachinePlayer.BLOCK;
+			}
+
+			public void set(boolean on) {
+				MachinePlayer.BLOCK = on;
+			}
+		}, "all moves:", "blocking moves:");
+	}
+
+	/**
+	 * threats() runs the threat-space search of chooseMove() on positions
+	 * from self-play games, and for the positions it solves compares it with
+	 * the full-width search to the same depth
+	 * @param games, number of self-play games to take positions from
+	 * @param threats, the threat moves the threat search may chain
+	 */
+	static void threats(int games, int threats) {
+		ArrayList<MachinePlayer> positions = positions(games, 4, 40);
+		ArrayList<MachinePlayer> solved = new ArrayList<MachinePlayer>();
+		int oldThreats = MachinePlayer.THREATS;
+		long nodes = 0;
+		long millis = 0;
+		MachinePlayer.THREATS = threats;
+		try {
+			for (MachinePlayer position : positions) {
+				MachinePlayer player = position.clone();
+				long start = System.currentTimeMillis();
+				if (player.forcedWin(Long.MAX_VALUE) != Moves.NONE) {
+					solved.add(position);
+				}
+				millis += System.currentTimeMillis() - start;
+				nodes += player.getNodes();
+			}
+			MachinePlayer.THREATS = 0;
+			long[] counts = countNodes(solved, 2 * threats + 1);
+			System.out.println(positions.size() + " positions, " + solved.size() + " forced wins found");
+			System.out.println("threat search:           " + nodes + " nodes, " + millis + " ms");
+			System.out.println("full width on the wins:  " + counts[0] + " nodes, " + counts[1] + " ms (depth "
+					+ (2 * threats + 1) + ")");
+		} finally {
+			MachinePlayer.THREATS = oldThreats;
+		}
+	}
+
+	/**
+	 * positions() collects the positions of self-play games at depth 1
+	 * @param games, number of games
+	 * @param seed, seed of their random openings
+	 * @param maxPlies, length of each game
+	 */
+	private static ArrayList<MachinePlayer> positions(int games, long seed, int maxPlies) {
+		ArrayList<MachinePlayer> positions = new ArrayList<MachinePlayer>();
+		Random random = new Random(seed);
+		for (int game = 0; game < games; game++) {
+			positions.addAll(selfPlay(1, 6, maxPlies, random));
+		}
+		return positions;
+	}
+
+	/**
+	 * An on/off search option that compare() switches.
+	 */
+	private interface Option {
+		/**
+		 * on() tells whether the option is on
+		 */
+		boolean on();
+
+		/**
+		 * set() turns the option on or off
+		 */
+		void set(boolean on);
+	}
+
+	/**
+	 * compare() counts the nodes and time of fixed-depth searches over the
+	 * positions with an option off and on, after a pass that only warms up
+	 * the JIT, and prints both and the node reduction; the option is reset
+	 * to its old state afterwards
+	 * @param positions, the positions to search
+	 * @param depth, the search depth
+	 * @param option, the option to compare
+	 * @param off, label of the run with the option off
+	 * @param on, label of the run with the option on
+	 */
+	private static void compare(ArrayList<MachinePlayer> positions, int depth, Option option, String off, String on) {
+		boolean old = option.on();
+		long[][] counts = new long[2][];
+		try {
+			countNodes(positions, depth);
+			for (int run = 0; run < 2; run++) {
+				option.set(run == 1);
+				counts[run] = countNodes(positions, depth);
+			}
+		} finally {
+			option.set(old);
+		}
+		System.out.println(positions.size() + " positions, depth " + depth);
+		System.out.println(String.format("%-16s", off) + counts[0][0] + " nodes, " + counts[0][1] + " ms");
+		System.out.println(String.format("%-16s", on) + counts[1][0] + " nodes, " + counts[1][1] + " ms");
+		System.out.println("node reduction: " + rate(counts[0][0] - counts[1][0], counts[0][0]));
+	}
+
+	/**
+	 * countNodes() searches every position cold to a fixed depth on one
+	 * thread
+	 * @return the total number of nodes and the milliseconds taken
+	 */
+	private static long[] countNodes(ArrayList<MachinePlayer> positions, int depth) {
+		int oldThreads = MachinePlayer.THREADS;
+		long[] counts = new long[2];
+		MachinePlayer.THREADS = 1;
+		try {
+			for (MachinePlayer position : positions) {
+				MachinePlayer player = position.clone();
+				player.forget();
+				player.setSearchDepth(depth);
+				long start = System.currentTimeMillis();
+				player.iterativeDeepening(Long.MAX_VALUE);
+				counts[1] += System.currentTimeMillis() - start;
+				counts[0] += player.getNodes();
+			}
+		} finally {
+			MachinePlayer.THREADS = oldThreads;
+		}
+		return counts;
+	}
+
+	/**
+	 * threads() measures the time to depth of positions from self-play games
+	 * with 1, 2, 4, ... up to maxThreads threads and prints the speedup over
+	 * one thread
+	 * @param games, number of self-play games to take positions from
+	 * @param depth, the search depth
+	 * @param maxThreads, the largest number of threads tried
+	 * @param lazySmp, whether to use Lazy SMP rather than the root split
+	 */
+	static void threads(int games, int depth, int maxThreads, boolean lazySmp) {
+		ArrayList<MachinePlayer> positions = new ArrayList<MachinePlayer>();
+		Random random = new Random(3);
+		for (int game = 0; game < games; game++) {
+			positions.addAll(selfPlay(1, 6, 30, random));
+		}
+		int oldThreads = MachinePlayer.THREADS;
+		boolean oldLazySmp = MachinePlayer.LAZYSMP;
+		long serial = 0;
+		System.out.println(positions.size() + " positions, depth " + depth + ", "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		MachinePlayer.LAZYSMP = lazySmp;
+		try {
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				MachinePlayer.THREADS = threads;
+				long nodes = 0;
+				long start = System.currentTimeMillis();
+				for (MachinePlayer position : positions) {
+					MachinePlayer player = position.clone();
+					player.forget();
+					player.setSearchDepth(depth);
+					player.iterativeDeepening(Long.MAX_VALUE);
+					nodes += player.getNodes();
+				}
+				long elapsed = System.currentTimeMillis() - start;
+				if (threads == 1) {
+					serial = elapsed;
+				}
+				System.out.println(threads + " threads: " + elapsed + " ms, " + nodes + " nodes, speedup "
+						+ String.format("%.2f", (double) serial / Math.max(elapsed, 1)));
+			}
+		} finally {
+			MachinePlayer.THREADS = oldThreads;
+			MachinePlayer.LAZYSMP = oldLazySmp;
+		}
+	}
+
+	/**
+	 * reuse() plays self-play games at a fixed depth between two pairs of
+	 * players that see the same moves. Before every move the player to move
+	 * of each pair searches the position: the cold pair with forget() first,
+	 * the warm pair with the search state kept from its earlier moves. The
+	 * cold pair's choice is played on both boards. It prints the time to
+	 * depth and the nodes per search of both pairs.
+	 * @param games, number of self-play games
+	 * @param depth, the search depth
+	 */
+	static void reuse(int games, int depth) {
+		Random random = new Random(4);
+		long[] millis = new long[2];
+		long[] nodes = new long[2];
+		int searches = 0;
+		for (int game = 0; game < games; game++) {
+			MachinePlayer[][] players = new MachinePlayer[2][2];
+			for (int run = 0; run < 2; run++) {
+				players[run][MachinePlayer.BLACK_SECOND] = new MachinePlayer(MachinePlayer.BLACK_SECOND, depth);
+				players[run][MachinePlayer.WHITE_FIRST] = new MachinePlayer(MachinePlayer.WHITE_FIRST, depth);
+			}
+			int turn = MachinePlayer.WHITE_FIRST;
+			for (int ply = 0; ply < 60; ply++) {
+				Move m = null;
+				if (ply < 6) {
+					Move[] moves = players[0][turn].findAllMoves(turn);
+					int count = 0;
+					while (count < moves.length && moves[count] != null) {
+						count++;
+					}
+					m = moves[random.nextInt(count)];
+				} else {
+					for (int run = 0; run < 2; run++) {
+						MachinePlayer mover = players[run][turn];
+						if (run == 0) {
+							mover.forget();
+						}
+						long start = System.nanoTime();
+						BestMove best = mover.iterativeDeepening(Long.MAX_VALUE);
+						millis[run] += (System.nanoTime() - start) / 1000000;
+						nodes[run] += mover.getNodes();
+						if (run == 0) {
+							m = best.move;
+						}
+					}
+					searches++;
+				}
+				if (m == null) {
+					break;
+				}
+				for (int run = 0; run < 2; run++) {
+					players[run][turn].forceMove(m);
+					players[run][1 - turn].opponentMove(m);
+				}
+				turn = 1 - turn;
+			}
+		}
+		String[] names = { "cold:", "warm:" };
+		System.out.println(games + " games, " + searches + " searches, depth " + depth);
+		for (int run = 0; run < 2; run++) {
+			System.out.println(names[run] + " " + millis[run] + " ms, " + nodes[run] + " nodes");
+		}
+		System.out.println("time saved: " + rate(millis[0] - millis[1], millis[0]) + ", nodes saved: "
+				+ rate(nodes[0] - nodes[1], nodes[0]));
+	}
+
+	/**
+	 * oldHashCode() is the base-3 hash code SimpleBoard used before the
+	 * Zobrist keys, kept here for comparison
+	 */
+	private static int oldHashCode(SimpleBoard board) {
+		int sum = 0;
+		for (int y = 0; y < 8; y++) {
+			for (int x = 0; x < 8; x++) {
+				if (!((x == 0 && y == 0) || (x == 8 && y == 8) || (x == 8 && y == 0) || (x == 0 && y == 8))) {
+					sum = 3 * sum + board.elementAt(x, y);
+				}
+			}
+		}
+		return sum;
+	}
+
+	/**
+	 * rate() formats count / total as a percentage
+	 */
+	static String rate(long count, long total) {
+		return total == 0 ? "-" : String.format("%.3f%%", 100.0 * count / total);
+	}
+
+}
@@ -1,10 +1,14 @@
-package player;
-
-class BestMove {
-	protected Move move;
-	protected int score;
-	public BestMove(){
-		move = null;
-		score = 0;
-	}
-}
+package player;
+
+class BestMove {
+	protected Move move;
+	protected int score;
+	// depth of the last completed iteration that chose move; 0 if no
+	// iteration completed, so move was not searched
+	protected int depth;
+	public BestMove(){
+		move = null;
+		score = 0;
+		depth = 0;
+	}
+}
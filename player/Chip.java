@@ -1,12 +1,17 @@
 package player;
 
+import board.Squares;
 
+/**
+ *  An immutable chip of one color on one square.  There is exactly one Chip
+ *  per square and color, handed out by get(), so chips can be shared freely
+ *  between players and threads.  Search state such as the visited mark and
+ *  the incoming direction of findPath() is kept by MachinePlayer.
+ */
 public class Chip {
-	private int x;
-	private int y;
-	private boolean visited;
-	private int direct;
-	private int chipValue;
+	private final int x;
+	private final int y;
+	private final int chipValue;
 	public final static int HORIZONTAL = 1;
 	public final static int VERTICAL = 2;
 	public final static int DIAGONALF = 3;
@@ -14,22 +19,34 @@ public class Chip {
 
 	private final static int BLACK = 2;
 	private final static int WHITE = 1;
+
+	// CHIPS[turn][Squares.square(x, y)] is the chip of color turn on (x, y)
+	private final static Chip[][] CHIPS = new Chip[2][Squares.SQUARES];
+
+	static {
+		for (int turn = 0; turn < 2; turn++) {
+			for (int square = 0; square < Squares.SQUARES; square++) {
+				CHIPS[turn][square] = new Chip(Squares.x(square), Squares.y(square), turn);
+			}
+		}
+	}
 	
 	
 	/*   Constructor   */
-	public Chip(Move m,int turn) {
-		this(m.x1,m.y1,turn);
-	}
-	public Chip(int x, int y,int turn) {
+	private Chip(int x, int y,int turn) {
 		this.chipValue = turn == MachinePlayer.BLACK_SECOND? BLACK:WHITE;
 		this.x = x;
 		this.y = y;
-		this.visited = false;
-		this.direct = 0;
 	}
-	public Chip(){
-		this(0,0,0);
-		this.chipValue = 0;
+
+	/**
+	 * get() returns the chip of a color on a square
+	 * @param x, the x-index
+	 * @param y, the y-index
+	 * @param turn, WHITE_FIRST or BLACK_SECOND
+	 */
+	public static Chip get(int x, int y, int turn) {
+		return CHIPS[turn][Squares.square(x, y)];
 	}
 	
 	
@@ -41,24 +58,9 @@ public class Chip {
 		return y;
 	}
 	
-	public boolean isVisited() {
-		return visited;
-	}
-	public void setVisited(boolean visited) {
-		this.visited = visited;
-	}
-	public int getDirect() {
-		return direct;
-	}
-	public void setDirect(int direct) {
-		this.direct = direct;
-	}
 	public int getChipValue() {
 		return chipValue;
 	}
-	public void setChipValue(int chipValue) {
-		this.chipValue = chipValue;
-	}
 	
 	
 	@Override
@@ -79,7 +81,7 @@ public class Chip {
 	}
 	@Override
 	public String toString() {
-		String v,d,c;
+		String c;
 		switch(this.chipValue){
 		case WHITE:
 			c = "o";
@@ -90,31 +92,7 @@ public class Chip {
 		default:
 			c = "no";
 		}
-		
-		if(this.visited){
-			v = "v";
-		} else{
-			v = "x";
-		}
-		
-		switch(this.direct){
-		case HORIZONTAL:
-			d = "--";
-			break;
-		case VERTICAL:
-			d = "|";
-			break;
-		case DIAGONALF:
-			d = "\\";
-			break;
-		case DIAGONALB:
-			d = "/";
-			break;
-		default:
-			d = new String();
-			break;
-		}
-		return  "(" + x + "," + y + ")" + " chip=" + c + " " + "dir=" + d + " " + "visited? " + v;
+		return  "(" + x + "," + y + ")" + " chip=" + c;
 	}
 	
 
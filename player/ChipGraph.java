@@ -0,0 +1,146 @@
+package player;
+
+import board.Squares;
+
+/**
+ *  ChipGraph is the line-of-sight connection graph of the chips of one
+ *  color.  Chips are the slots 0..9 of the color's chip array.  For every
+ *  chip and each of the 8 ray directions of Squares it stores the chip of
+ *  the same color seen first in that direction, if no chip lies between
+ *  them, and it keeps the same links as a 10-bit adjacency mask per chip.
+ *
+ *  MachinePlayer updates the graph with place() and remove() whenever a
+ *  chip of either color appears on or leaves a square; only the links along
+ *  the four lines through that square change.
+ */
+class ChipGraph {
+	public final static int MAX_CHIPS = 10;
+
+	// neighbor[slot * DIRECTIONS + d] is the slot linked to slot in direction d, or -1
+	private int[] neighbor;
+	// adjacency[slot] has bit j set if slot is linked to slot j
+	private int[] adjacency;
+
+	public ChipGraph() {
+		neighbor = new int[MAX_CHIPS * Squares.DIRECTIONS];
+		adjacency = new int[MAX_CHIPS];
+		for (int i = 0; i < neighbor.length; i++) {
+			neighbor[i] = -1;
+		}
+	}
+
+	/**
+	 * copy() returns an independent copy of this graph
+	 */
+	public ChipGraph copy() {
+		ChipGraph graph = new ChipGraph();
+		System.arraycopy(this.neighbor, 0, graph.neighbor, 0, neighbor.length);
+		System.arraycopy(this.adjacency, 0, graph.adjacency, 0, adjacency.length);
+		return graph;
+	}
+
+	/**
+	 * neighbor() returns the chip linked to slot in the given direction
+	 * @return the neighbor's slot, or -1 if there is none
+	 */
+	public int neighbor(int slot, int direction) {
+		return neighbor[slot * Squares.DIRECTIONS + direction];
+	}
+
+	/**
+	 * adjacency() returns the mask of all slots linked to slot
+	 */
+	public int adjacency(int slot) {
+		return adjacency[slot];
+	}
+
+	/**
+	 * link() connects slot a to slot b, b lying in the given direction from a
+	 */
+	public void link(int a, int b, int direction) {
+		neighbor[a * Squares.DIRECTIONS + direction] = b;
+		neighbor[b * Squares.DIRECTIONS + (direction ^ 1)] = a;
+		adjacency[a] |= 1 << b;
+		adjacency[b] |= 1 << a;
+	}
+
+	/**
+	 * unlink() removes the link of slot a in the given direction, if any
+	 */
+	public void unlink(int a, int direction) {
+		int b = neighbor[a * Squares.DIRECTIONS + direction];
+		if (b >= 0) {
+			neighbor[a * Squares.DIRECTIONS + direction] = -1;
+			neighbor[b * Squares.DIRECTIONS + (direction ^ 1)] = -1;
+			adjacency[a] &= ~(1 << b);
+			adjacency[b] &= ~(1 << a);
+		}
+	}
+
+	/**
+	 * unlinkAll() removes every link of slot
+	 */
+	public void unlinkAll(int slot) {
+		for (int d = 0; d < Squares.DIRECTIONS; d++) {
+			unlink(slot, d);
+		}
+	}
+
+	/**
+	 * place() updates the graphs of both colors for a chip appearing on an
+	 * empty square: a link crossing the square is cut, and the new chip is
+	 * linked to the first chip of its color on each ray.
+	 * @param graphs, the graphs indexed by color
+	 * @param slotAt, the slot of the chip on each square
+	 * @param own, the bitboard of the new chip's color, without the new chip
+	 * @param occupied, the bitboard of all chips, without the new chip
+	 * @param color, the color of the new chip
+	 * @param slot, the slot of the new chip
+	 * @param square, the square of the new chip
+	 */
+	static void place(ChipGraph[] graphs, int[] slotAt, long own, long occupied, int color, int slot, int square) {
+		for (int d = 0; d < Squares.DIRECTIONS; d += 2) {
+			int a = Squares.firstAlong(d, square, occupied);
+			int b = Squares.firstAlong(d + 1, square, occupied);
+			boolean ownA = a >= 0 && (own & (1L << a)) != 0;
+			boolean ownB = b >= 0 && (own & (1L << b)) != 0;
+			if (a >= 0 && b >= 0 && ownA == ownB) {
+				graphs[ownA ? color : 1 - color].unlink(slotAt[a], d + 1);
+			}
+			if (ownA) {
+				graphs[color].link(slot, slotAt[a], d);
+			}
+			if (ownB) {
+				graphs[color].link(slot, slotAt[b], d + 1);
+			}
+		}
+	}
+
+	/**
+	 * remove() updates the graphs of both colors for a chip leaving a square:
+	 * its links are dropped, and chips of one color that now see each other
+	 * across the square are linked.
+	 * @param graphs, the graphs indexed by color
+	 * @param slotAt, the slot of the chip on each square
+	 * @param own, the bitboard of the removed chip's color, without that chip
+	 * @param occupied, the bitboard of all chips, without the removed chip
+	 * @param color, the color of the removed chip
+	 * @param slot, the slot of the removed chip
+	 * @param square, the square the chip leaves
+	 */
+	static void remove(ChipGraph[] graphs, int[] slotAt, long own, long occupied, int color, int slot, int square) {
+		graphs[color].unlinkAll(slot);
+		for (int d = 0; d < Squares.DIRECTIONS; d += 2) {
+			int a = Squares.firstAlong(d, square, occupied);
+			int b = Squares.firstAlong(d + 1, square, occupied);
+			if (a >= 0 && b >= 0) {
+				boolean ownA = (own & (1L << a)) != 0;
+				boolean ownB = (own & (1L << b)) != 0;
+				if (ownA == ownB) {
+					graphs[ownA ? color : 1 - color].link(slotAt[a], slotAt[b], d + 1);
+				}
+			}
+		}
+	}
+
+}
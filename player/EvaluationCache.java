@@ -0,0 +1,77 @@
+package player;
+
+import java.util.Arrays;
+
+/**
+ *  A fixed-size, direct-mapped cache of network evaluations, keyed by
+ *  SimpleBoard.structureKey().  The evaluation of one color only depends on
+ *  its own chips and on the opposing chips that stand between them, so a
+ *  color whose structure a move did not touch is not evaluated again.
+ *
+ *  Each key has a single slot, and a store overwrites whatever the slot
+ *  held.  Like TranspositionTable, keys and entries are two long arrays,
+ *  16 bytes per entry, the keys array holds key ^ entry, and the cache is
+ *  shared between the threads of a parallel search without locking.
+ */
+class EvaluationCache {
+	private final static int ENTRY_BYTES = 16;
+	// entry layout: the value in bits 0-31; bit 32 marks a used entry
+	private final static long USED = 1L << 32;
+	// probe() result for a key that is not in the cache
+	public final static int MISS = -1;
+
+	// key ^ entry of each slot
+	private long[] keys;
+	private long[] entries;
+	// number of slots - 1; the number of slots is a power of 2
+	private int mask;
+
+	/**
+	 * Creates a cache that uses about the given number of megabytes.
+	 */
+	public EvaluationCache(int megabytes) {
+		long bytes = (long) megabytes << 20;
+		int slots = 1;
+		while ((long) slots * 2 * ENTRY_BYTES <= bytes && slots < (1 << 30)) {
+			slots *= 2;
+		}
+		keys = new long[slots];
+		entries = new long[slots];
+		mask = slots - 1;
+	}
+
+	/**
+	 * clear() empties the cache
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+	}
+
+	/**
+	 * probe() looks up an evaluation
+	 * @param key, the structure key
+	 * @return the stored value, or MISS
+	 */
+	public int probe(long key) {
+		int i = (int) (key ^ (key >>> 32)) & mask;
+		long entry = entries[i];
+		if (entry != 0 && (keys[i] ^ entry) == key) {
+			return (int) entry;
+		}
+		return MISS;
+	}
+
+	/**
+	 * store() records an evaluation
+	 * @param key, the structure key
+	 * @param value, the value, not negative
+	 */
+	public void store(long key, int value) {
+		int i = (int) (key ^ (key >>> 32)) & mask;
+		long entry = USED | value;
+		keys[i] = key ^ entry;
+		entries[i] = entry;
+	}
+
+}
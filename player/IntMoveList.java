@@ -0,0 +1,96 @@
+package player;
+
+/**
+ *  IntMoveList is a reusable buffer of moves packed by Moves, with an
+ *  ordering key per move.  The search keeps one list per ply and refills
+ *  it at every node, so generating moves allocates nothing.
+ */
+class IntMoveList {
+	// 10 chips with at most 60 destinations each
+	public final static int CAPACITY = 600;
+
+	private int[] moves;
+	private int[] keys;
+	private int size;
+
+	public IntMoveList() {
+		moves = new int[CAPACITY];
+		keys = new int[CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * clear() empties the list
+	 */
+	public void clear() {
+		size = 0;
+	}
+
+	/**
+	 * add() appends a packed move, with key 0
+	 */
+	public void add(int move) {
+		moves[size] = move;
+		keys[size] = 0;
+		size++;
+	}
+
+	/**
+	 * size() returns the number of moves in the list
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * get() returns the packed move at index i
+	 */
+	public int get(int i) {
+		return moves[i];
+	}
+
+	/**
+	 * key() returns the ordering key of the move at index i
+	 */
+	public int key(int i) {
+		return keys[i];
+	}
+
+	/**
+	 * setKey() sets the ordering key of the move at index i
+	 */
+	public void setKey(int i, int key) {
+		keys[i] = key;
+	}
+
+	/**
+	 * retain() drops every move that neither lands on one of the given
+	 * squares nor is the given move, keeping the order of the rest
+	 * @param squares, the mask of destination squares to keep
+	 * @param move, a packed move to keep, or Moves.NONE
+	 */
+	public void retain(long squares, int move) {
+		int kept = 0;
+		for (int i = 0; i < size; i++) {
+			if ((squares & (1L << Moves.to(moves[i]))) != 0 || moves[i] == move) {
+				moves[kept] = moves[i];
+				keys[kept] = keys[i];
+				kept++;
+			}
+		}
+		size = kept;
+	}
+
+	/**
+	 * swap() exchanges the moves (and keys) at indices i and j
+	 */
+	public void swap(int i, int j) {
+		int move = moves[i];
+		int key = keys[i];
+		moves[i] = moves[j];
+		keys[i] = keys[j];
+		moves[j] = move;
+		keys[j] = key;
+	}
+
+}
@@ -3,9 +3,15 @@
 package player;
 
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import board.SimpleBoard;
+import board.Squares;
 import list.*;
 
 /**
@@ -15,12 +21,97 @@ import list.*;
 public class MachinePlayer extends Player {
 	// specify class variable for search depth
 	public static int SEARCHDEPTH = 4;
+	// wall-clock milliseconds chooseMove() may spend searching (the rules allow 5 seconds)
+	public static long TIMELIMIT = 4000;
+	// size of the transposition table in megabytes
+	public static int TABLEMEGABYTES = 16;
+	// size of the evaluation cache of checkPaths() in megabytes; 0 turns it off
+	public static int EVALMEGABYTES = 2;
+	// order moves by table move, killers and history; false searches them in raster order
+	public static boolean ORDERING = true;
+	// threads searching the root moves of chooseMove() in parallel; 1, the
+	// default, searches them serially with aspiration windows, see
+	// searchIteration()
+	public static int THREADS = 1;
+	// with THREADS > 1, search with Lazy SMP instead of splitting the root moves
+	public static boolean LAZYSMP = false;
+	// keep searching on a background thread while the opponent thinks, see ponder()
+	public static boolean PONDER = false;
+	// principal variation search with aspiration windows; false searches plain alpha-beta
+	public static boolean PVS = true;
+	// half width of the aspiration window around the previous iteration's score
+	public static int WINDOW = 20;
+	// reduce the depth of late quiet STEP moves, see search()
+	public static boolean LMR = true;
+	// moves searched at full depth at each node before reductions start
+	private final static int LATE_MOVES = 4;
+	// threat moves the threat-space search of chooseMove() may chain, see
+	// threatSearch(); 0 turns it and the leaf extension of search() off
+	public static int THREATS = 2;
+	// when the opponent threatens to complete a network, search only the
+	// moves that can stop it, see search()
+	public static boolean BLOCK = true;
+	// score positions only at the horizon; interior nodes only test whether
+	// the last move completed a network, see search()
+	public static boolean LAZYEVAL = true;
+	// pool running the parallel root search, sized for THREADS
+	private static ForkJoinPool pool;
+	// deepest iteration of chooseMove()'s iterative deepening
+	private int maxDepth;
+	// depth of the last iteration iterativeDeepening() completed
+	private int completedDepth;
+	// chooseMove() abandons the current iteration once this time has passed
+	private long deadline;
+	// set when the search ran past the deadline; its result is then discarded
+	private boolean aborted;
+	// set by another thread to make the search abort, see lazySmp() and ponder()
+	private volatile boolean stop;
+	// the player a parallel search helper works for; stopping it stops the helper
+	private MachinePlayer parent;
+	// nodes visited by the search, for checking the clock every few nodes
+	private long nodes;
+	// results of earlier searches, shared with clones; created by chooseMove()
+	private TranspositionTable table;
+	// network evaluations by structure key, shared with clones like the table
+	private EvaluationCache evalCache;
+	// checkPaths() calls that probed the evaluation cache since the last
+	// search started, and how many of them hit
+	private long evalProbes;
+	private long evalHits;
+	// checkPaths() calls since the last search started
+	private long evaluations;
+	// two killer moves per ply (packed by Moves): recent moves that caused a cutoff
+	private int[][] killers;
+	// history[from * 64 + to] grows each time that move causes a cutoff
+	private int[] history;
+	// move buffer of each ply, reused between nodes
+	private IntMoveList[] moveLists;
+	// best move found by the last search() at each ply
+	private int[] bestMoves;
+	// principal variation of the last search, advanced by each move played
+	private int[] pv;
+	private int pvLength;
+	// the background search started by ponder(), or null
+	private Thread ponderThread;
+	// the clone the background search runs on
+	private MachinePlayer ponderer;
+	// the predicted reply the ponderer searches after, or Moves.NONE for all replies
+	private int ponderMove;
+	// set by opponentMove() when the opponent played ponderMove
+	private boolean ponderHit;
+	// result of the ponderer's search, valid once ponderThread has ended
+	private BestMove ponderResult;
+	// this player and copies of it, one per thread of the parallel root search
+	private MachinePlayer[] helpers;
 	// record current chip numbers of machine player
 	private int machineChipsNum;
 	// record current chip numbers of opponent player
 	private int oppoChipsNum;
 	// record the current board
 	private SimpleBoard board;
+	// set once a move recorded by forceMove() or opponentMove() completed a
+	// network
+	private boolean over;
 	// specify my turn (color), WHITE-FIRST or BLACK-SECOND
 	final private int turn;
 	// specify opponent's turn (color), WHITE-FIRST or BLACK-SECOND
@@ -29,9 +120,29 @@ public class MachinePlayer extends Player {
 	private Chip[] machineChips;
 	// store current chips of opponent player
 	private Chip[] opponentChips;
-	/* store the current potential networks */
+	// the chip array slot of the chip on each square (either color), or -1
+	private int[] slotAt;
+	// line-of-sight connections of each color, indexed by WHITE_FIRST/BLACK_SECOND
+	private ChipGraph[] graphs;
+	// finds networks in the graphs, see checkPaths(); created on first use
+	private NetworkDetector detector;
+	// findPath() state of the chip on each square: visited, and the line it was reached on
+	private boolean[] visited;
+	private int[] direct;
+	// connected component of each chip, filled by components()
+	private int[] components;
+	/* store the current potential networks, each an IntDList of chip squares */
 	private List machinePaths;
 	private List opponentPaths;
+	/*
+	 * undo stack of makeMove(): the move, its color, the chip slot it changed
+	 * and the chip that slot held before
+	 */
+	private int[] undoMoves;
+	private int[] undoColors;
+	private int[] undoSlots;
+	private Chip[] undoChips;
+	private int undoTop;
 
 	public static final int ADD = 1;
 	public static final int STEP = 2;
@@ -45,6 +156,11 @@ public class MachinePlayer extends Player {
 	private final static int WHITE = 1;
 	private final static int EMPTY = 0;
 	private final static int DIMENSION = 8;
+	// deepest line the undo stack can hold
+	private final static int MAX_PLY = 64;
+	// deepest search depth; ponderAll() searches one ply deeper, and a
+	// line of MAX_PLY - 1 plies still leaves room for the leaf extension
+	private final static int MAX_DEPTH = MAX_PLY - 2;
 
 	public final static int WHITE_FIRST = 1;
 	public final static int BLACK_SECOND = 0;
@@ -68,12 +184,37 @@ public class MachinePlayer extends Player {
 		}
 		machineChipsNum = 0;
 		oppoChipsNum = 0;
+		maxDepth = Math.min(searchDepth, MAX_DEPTH);
+		deadline = Long.MAX_VALUE;
 		board = new SimpleBoard();
 		this.turn = turn;
 		opponent = (turn + 1) % 2;
 		machineChips = new Chip[10];
 		opponentChips = new Chip[10];
-
+		slotAt = new int[DIMENSION * DIMENSION];
+		for (int i = 0; i < slotAt.length; i++) {
+			slotAt[i] = -1;
+		}
+		graphs = new ChipGraph[2];
+		graphs[WHITE_FIRST] = new ChipGraph();
+		graphs[BLACK_SECOND] = new ChipGraph();
+		visited = new boolean[DIMENSION * DIMENSION];
+		direct = new int[DIMENSION * DIMENSION];
+		components = new int[ChipGraph.MAX_CHIPS];
+		undoMoves = new int[MAX_PLY];
+		undoColors = new int[MAX_PLY];
+		undoSlots = new int[MAX_PLY];
+		undoChips = new Chip[MAX_PLY];
+		undoTop = 0;
+		killers = new int[MAX_PLY][2];
+		history = new int[DIMENSION * DIMENSION * DIMENSION * DIMENSION];
+		moveLists = new IntMoveList[MAX_PLY];
+		for (int i = 0; i < MAX_PLY; i++) {
+			moveLists[i] = new IntMoveList();
+		}
+		bestMoves = new int[MAX_PLY];
+		pv = new int[MAX_PLY];
+		pvLength = 0;
 	}
 
     /**
@@ -82,10 +223,11 @@ public class MachinePlayer extends Player {
      * machinePaths & opponentPaths, these two fields would be renewed.
      */
 	public MachinePlayer clone() {
-		MachinePlayer player = new MachinePlayer(this.turn, MachinePlayer.SEARCHDEPTH);
+		MachinePlayer player = new MachinePlayer(this.turn, this.maxDepth);
 		player.board = this.board.clone();
 		player.machineChipsNum = this.machineChipsNum;
 		player.oppoChipsNum = this.oppoChipsNum;
+		player.over = this.over;
 		player.myName = this.myName;
 		Chip[] machineChips = player.machineChips;
 		Chip[] opponentChips = player.opponentChips;
@@ -95,6 +237,13 @@ public class MachinePlayer extends Player {
 		for (int i = 0; i < this.oppoChipsNum; i++) {
 			opponentChips[i] = this.opponentChips[i];
 		}
+		for (int i = 0; i < slotAt.length; i++) {
+			player.slotAt[i] = this.slotAt[i];
+		}
+		player.graphs[WHITE_FIRST] = this.graphs[WHITE_FIRST].copy();
+		player.graphs[BLACK_SECOND] = this.graphs[BLACK_SECOND].copy();
+		player.table = this.table;
+		player.evalCache = this.evalCache;
 		return player;
 	}
   
@@ -113,7 +262,11 @@ public class MachinePlayer extends Player {
 	// the internal game board) as a move by "this" player.
 	public Move chooseMove() {
 		Move m = null;
-		if (this.machineChipsNum == 0) {
+		long deadline = System.currentTimeMillis() + TIMELIMIT;
+		BestMove pondered = finishPonder();
+		if (pondered != null && pondered.move != null && pondered.depth > 0) {
+			m = pondered.move;
+		} else if (this.machineChipsNum == 0) {
 			Random random = new Random();
 			if (this.turn == WHITE_FIRST) {
 				m = new Move(0, random.nextInt(6) + 1);
@@ -121,11 +274,19 @@ public class MachinePlayer extends Player {
 				m = new Move(random.nextInt(6) + 1, 0);
 			}
 		} else {
-			BestMove bestMove = abtree(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, this.board, this.turn);
-			m = bestMove.move;
-			System.out.println(bestMove.score);
+			int forced = forcedWin(Math.min(System.currentTimeMillis() + TIMELIMIT / 4, deadline));
+			if (forced != Moves.NONE) {
+				m = Moves.decode(forced);
+			} else {
+				BestMove bestMove = iterativeDeepening(deadline);
+				m = bestMove.move;
+				System.out.println(bestMove.score);
+			}
 		}
-		if (this.forceMove(m)) {
+		if (m != null && this.forceMove(m)) {
+			if (PONDER) {
+				ponder();
+			}
 			return m;
 		} else {
 			System.out.println("Error: chooseMove method invalid!");
@@ -134,104 +295,1279 @@ public class MachinePlayer extends Player {
 	}
   
    
+	/**
+	 * iterativeDeepening() searches the current position to depth 1, 2, ...
+	 * up to the player's search depth, until the deadline passes. An iteration
+	 * that runs out of time is abandoned, and the best move of the last
+	 * completed iteration is returned. Each completed iteration reorders the
+	 * root moves by score, so the next one searches the best move first.
+	 * The search works on packed moves (see Moves); only the result is
+	 * turned into a Move.
+	 *
+	 * What earlier searches learned is kept: the transposition table only
+	 * starts a new generation, history scores are halved, and the first
+	 * move of the principal variation left from the last search (when the
+	 * game followed it) is searched first.
+	 * @param deadline, the wall-clock time (as System.currentTimeMillis())
+	 * by which the search has to stop
+	 * @return a BestMove with the best move found; its move is null if the
+	 * game is already over
+	 */
+	BestMove iterativeDeepening(long deadline) {
+		BestMove best = new BestMove();
+		if (over) {
+			best.score = this.checkPaths(turn).getScore() + this.checkPaths(opponent).getScore();
+			return best;
+		}
+		int[] moves = rootMoves();
+		int count = moves.length;
+		if (count == 0) {
+			return best;
+		}
+		int[] scores = new int[count];
+		if (pvLength > 0) {
+			toFront(moves, count, pv[0]);
+		}
+		int bestMove = moves[0];
+		if (table == null) {
+			table = new TranspositionTable(TABLEMEGABYTES);
+		} else {
+			table.newSearch();
+		}
+		for (int i = 0; i < history.length; i++) {
+			history[i] >>= 1;
+		}
+		this.nodes = 0;
+		this.evaluations = 0;
+		this.evalProbes = 0;
+		this.evalHits = 0;
+		this.completedDepth = 0;
+		this.deadline = deadline;
+		this.aborted = false;
+		if (THREADS > 1 && count > 1 && LAZYSMP) {
+			return lazySmp(moves, scores, count);
+		}
+		if (THREADS > 1 && count > 1) {
+			helpers = new MachinePlayer[THREADS];
+			helpers[0] = this;
+			for (int i = 1; i < THREADS; i++) {
+				helpers[i] = this.clone();
+				helpers[i].deadline = deadline;
+				helpers[i].parent = this;
+			}
+		}
+		for (int depth = 1; depth <= maxDepth; depth++) {
+			int index = searchIteration(moves, scores, count, depth, best.score);
+			if (aborted) {
+				break;
+			}
+			bestMove = moves[index];
+			best.score = scores[index];
+			completedDepth = depth;
+			collectPv(bestMove, depth);
+			sortMoves(moves, scores, count);
+			if (System.currentTimeMillis() > deadline) {
+				break;
+			}
+		}
+		this.deadline = Long.MAX_VALUE;
+		this.aborted = false;
+		this.helpers = null;
+		best.move = Moves.decode(bestMove);
+		best.depth = completedDepth;
+		return best;
+	}
+
+	/**
+	 * rootMoves() returns the packed legal moves of this player
+	 */
+	private int[] rootMoves() {
+		IntMoveList list = moveLists[0];
+		generateMoves(turn, list);
+		int[] moves = new int[list.size()];
+		for (int i = 0; i < moves.length; i++) {
+			moves[i] = list.get(i);
+		}
+		return moves;
+	}
+
+	/**
+	 * ponder() starts searching on a background thread, on a clone of this
+	 * player that shares its transposition table, while the opponent thinks.
+	 * If the principal variation predicts the opponent's reply, the clone
+	 * plays it, looks for a forced win and then searches our answer, as
+	 * chooseMove() would but without stopping at the search depth: it
+	 * deepens up to MAX_DEPTH until it is stopped. Otherwise it searches the
+	 * opponent's position one ply deeper than chooseMove() will, which fills
+	 * the table for all replies. opponentMove() stops a search that guessed
+	 * wrong; a right guess keeps running, and the next chooseMove() takes
+	 * it over.
+	 */
+	private void ponder() {
+		ponderer = this.clone();
+		ponderMove = pvLength > 0 ? pv[0] : Moves.NONE;
+		ponderHit = false;
+		ponderResult = null;
+		final MachinePlayer player = ponderer;
+		final int reply = ponderMove;
+		ponderThread = new Thread(new Runnable() {
+			public void run() {
+				if (reply != Moves.NONE) {
+					player.opponentMove(Moves.decode(reply));
+					int forced = player.forcedWin(System.currentTimeMillis() + TIMELIMIT / 4);
+					if (forced != Moves.NONE) {
+						BestMove win = new BestMove();
+						win.move = Moves.decode(forced);
+						// a proven win needs no deeper search
+						win.depth = MAX_DEPTH;
+						player.pvLength = 0;
+						ponderResult = win;
+					} else {
+						player.maxDepth = MAX_DEPTH;
+						ponderResult = player.iterativeDeepening(Long.MAX_VALUE);
+					}
+				} else {
+					player.ponderAll();
+				}
+			}
+		}, "ponder");
+		ponderThread.setDaemon(true);
+		ponderThread.start();
+	}
+
+	/**
+	 * ponderAll() is the background search of ponder() when no reply is
+	 * predicted: iterative deepening over the position with the opponent to
+	 * move, one ply deeper than chooseMove() will search after the reply
+	 */
+	private void ponderAll() {
+		if (table == null) {
+			return;
+		}
+		table.newSearch();
+		this.deadline = Long.MAX_VALUE;
+		for (int depth = 1; depth <= maxDepth + 1 && !aborted; depth++) {
+			search(Integer.MIN_VALUE, Integer.MAX_VALUE, 0, depth, opponent);
+		}
+	}
+
+	/**
+	 * stopPonder() stops the background search, if any, and waits for it to
+	 * end; what it stored in the transposition table stays there
+	 */
+	private void stopPonder() {
+		if (ponderThread == null) {
+			return;
+		}
+		ponderer.stop = true;
+		joinPonder(0);
+		ponderThread = null;
+		ponderer = null;
+	}
+
+	/**
+	 * finishPonder() ends pondering when chooseMove() is called. After a
+	 * right guess the background search gets up to TIMELIMIT more
+	 * milliseconds, and its result is returned; otherwise it is stopped.
+	 * @return the pondered best move, or null if there is none to use; its
+	 * depth is 0 if the search was stopped before its first iteration
+	 * completed
+	 */
+	private BestMove finishPonder() {
+		if (ponderThread == null || !ponderHit) {
+			stopPonder();
+			return null;
+		}
+		joinPonder(TIMELIMIT);
+		MachinePlayer player = ponderer;
+		stopPonder();
+		System.arraycopy(player.pv, 0, pv, 0, player.pvLength);
+		pvLength = player.pvLength;
+		return ponderResult;
+	}
+
+	/**
+	 * joinPonder() waits for the background search to end
+	 * @param millis, the longest wait, 0 for no limit
+	 */
+	private void joinPonder(long millis) {
+		try {
+			ponderThread.join(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * toFront() moves one move to the front of the root moves, keeping the
+	 * order of the others; nothing happens if it is not among them
+	 */
+	private static void toFront(int[] moves, int count, int move) {
+		for (int i = 0; i < count; i++) {
+			if (moves[i] == move) {
+				System.arraycopy(moves, 0, moves, 1, i);
+				moves[0] = move;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * collectPv() records the principal variation of a completed iteration:
+	 * its best root move, followed by the best moves the transposition table
+	 * holds for the positions along the line. A table move that is not legal
+	 * (a key collision) ends the line.
+	 * @param first, the best root move
+	 * @param depth, the depth of the iteration, the longest line recorded
+	 */
+	private void collectPv(int first, int depth) {
+		int color = turn;
+		int move = first;
+		pvLength = 0;
+		while (move != Moves.NONE && pvLength < depth) {
+			pv[pvLength++] = move;
+			makeMove(move, color);
+			color = 1 - color;
+			move = Moves.NONE;
+			long entry = table.probe(board.positionKey(color));
+			if (entry != 0) {
+				IntMoveList legal = moveLists[pvLength];
+				generateMoves(color, legal);
+				for (int i = 0; i < legal.size(); i++) {
+					if (legal.get(i) == TranspositionTable.move(entry)) {
+						move = legal.get(i);
+					}
+				}
+			}
+		}
+		for (int i = 0; i < pvLength; i++) {
+			unmakeMove();
+		}
+	}
+
+	/**
+	 * advance() updates the search state kept between moves for a move
+	 * played on the board: the principal variation drops its first move if
+	 * the game followed it, and is forgotten otherwise; the killers move up
+	 * one ply, as the position after the move is the new root
+	 */
+	private void advance(int move) {
+		if (pvLength > 0 && pv[0] == move) {
+			pvLength--;
+			System.arraycopy(pv, 1, pv, 0, pvLength);
+		} else {
+			pvLength = 0;
+		}
+		for (int i = 0; i < MAX_PLY - 1; i++) {
+			killers[i][0] = killers[i + 1][0];
+			killers[i][1] = killers[i + 1][1];
+		}
+		killers[MAX_PLY - 1][0] = Moves.NONE;
+		killers[MAX_PLY - 1][1] = Moves.NONE;
+	}
+
+	/**
+	 * forget() drops everything earlier searches left behind: the
+	 * transposition table and the evaluation cache (shared with clones) are
+	 * cleared, and killers,
+	 * history and the principal variation are reset. Benchmarks use it to
+	 * search a position cold.
+	 */
+	void forget() {
+		if (table != null) {
+			table.clear();
+		}
+		if (evalCache != null) {
+			evalCache.clear();
+		}
+		for (int i = 0; i < MAX_PLY; i++) {
+			killers[i][0] = Moves.NONE;
+			killers[i][1] = Moves.NONE;
+		}
+		Arrays.fill(history, 0);
+		pvLength = 0;
+	}
+
+	/**
+	 * lazySmp() is the Lazy SMP form of iterativeDeepening(): THREADS - 1
+	 * helpers, each on its own clone of this player, run their own iterative
+	 * deepening at staggered depths while this player runs the usual one. No
+	 * results are exchanged except through the shared transposition table,
+	 * which lets this player's search skip what the helpers already did. The
+	 * helpers are stopped as soon as this player is done.
+	 * @param moves, the packed legal root moves
+	 * @param scores, receives the score of each move
+	 * @param count, number of moves
+	 * @return the best move of this player's last completed iteration
+	 */
+	private BestMove lazySmp(int[] moves, int[] scores, int count) {
+		BestMove best = new BestMove();
+		int bestMove = moves[0];
+		MachinePlayer[] smp = new MachinePlayer[THREADS];
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[THREADS];
+		for (int t = 1; t < THREADS; t++) {
+			final MachinePlayer helper = this.clone();
+			final int first = 1 + t % 2;
+			helper.deadline = deadline;
+			helper.parent = this;
+			smp[t] = helper;
+			tasks[t] = pool().submit(new Runnable() {
+				public void run() {
+					helper.helperSearch(first);
+				}
+			});
+		}
+		try {
+			for (int depth = 1; depth <= maxDepth; depth++) {
+				int index = searchIteration(moves, scores, count, depth, best.score);
+				if (aborted) {
+					break;
+				}
+				bestMove = moves[index];
+				best.score = scores[index];
+				completedDepth = depth;
+				collectPv(bestMove, depth);
+				sortMoves(moves, scores, count);
+				if (System.currentTimeMillis() > deadline) {
+					break;
+				}
+			}
+		} finally {
+			for (int t = 1; t < THREADS; t++) {
+				smp[t].stop = true;
+			}
+			for (int t = 1; t < THREADS; t++) {
+				tasks[t].join();
+				nodes += smp[t].nodes;
+			}
+			this.deadline = Long.MAX_VALUE;
+			this.aborted = false;
+		}
+		best.move = Moves.decode(bestMove);
+		best.depth = completedDepth;
+		return best;
+	}
+
+	/**
+	 * helperSearch() is the iterative deepening of a Lazy SMP helper; it
+	 * searches the root moves from the first depth up to the player's search
+	 * depth, until it is stopped
+	 * @param first, the depth of the first iteration
+	 */
+	private void helperSearch(int first) {
+		int[] moves = rootMoves();
+		int count = moves.length;
+		int[] scores = new int[count];
+		for (int depth = first; depth <= maxDepth; depth++) {
+			searchIteration(moves, scores, count, depth, scores[0]);
+			if (aborted) {
+				return;
+			}
+			sortMoves(moves, scores, count);
+		}
+	}
+
+	/**
+	 * searchIteration() runs one iteration of iterative deepening. With PVS
+	 * it first searches an aspiration window of WINDOW points around the
+	 * previous iteration's score; only if the best score falls outside it
+	 * is the iteration searched again with the full window. The parallel
+	 * root split of THREADS > 1 always searches the full window.
+	 * @param moves, the packed legal moves of this player
+	 * @param scores, receives the score of each move
+	 * @param count, number of moves
+	 * @param depth, the depth of this iteration
+	 * @param previous, the score of the previous iteration
+	 * @return the index of the best move; meaningless if the search aborted
+	 */
+	private int searchIteration(int[] moves, int[] scores, int count, int depth, int previous) {
+		if (helpers != null) {
+			return searchRootParallel(moves, scores, count, depth);
+		}
+		if (PVS && depth > 1 && Math.abs(previous) < Integer.MAX_VALUE / 2) {
+			int alpha = previous - WINDOW;
+			int beta = previous + WINDOW;
+			int index = searchRoot(moves, scores, count, depth, alpha, beta);
+			if (aborted || (scores[index] > alpha && scores[index] < beta)) {
+				return index;
+			}
+		}
+		return searchRoot(moves, scores, count, depth, Integer.MIN_VALUE, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * searchRoot() runs one alpha-beta iteration over the root moves, in
+	 * their current order. With PVS every move after the first is searched
+	 * with a null window first, and searched again only if it beats alpha.
+	 * The search stops early when a move reaches beta.
+	 * @param moves, the packed legal moves of this player
+	 * @param scores, receives the score of each move
+	 * @param count, number of moves
+	 * @param depth, the depth of this iteration
+	 * @param alpha, the lowest score of interest
+	 * @param beta, the highest score of interest
+	 * @return the index of the best move; meaningless if the search aborted
+	 */
+	private int searchRoot(int[] moves, int[] scores, int count, int depth, int alpha, int beta) {
+		int best = 0;
+		for (int i = 0; i < count; i++) {
+			this.makeMove(moves[i], turn);
+			if (PVS && i > 0 && alpha < beta - 1) {
+				scores[i] = this.search(alpha, alpha + 1, 1, depth - 1, opponent);
+				if (scores[i] > alpha && scores[i] < beta) {
+					scores[i] = this.search(alpha, beta, 1, depth - 1, opponent);
+				}
+			} else {
+				scores[i] = this.search(alpha, beta, 1, depth - 1, opponent);
+			}
+			this.unmakeMove();
+			if (aborted) {
+				return best;
+			}
+			if (scores[i] > alpha) {
+				best = i;
+				alpha = scores[i];
+				if (alpha >= beta) {
+					return best;
+				}
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * searchRootParallel() is searchRoot() on THREADS threads, in the manner
+	 * of Young Brothers Wait: the first root move is searched alone, then the
+	 * helpers take the remaining moves one at a time from a shared counter.
+	 * Every move is searched with the best score any thread has found so far
+	 * as its alpha; a move that does not beat that alpha only has an upper
+	 * bound for its score and cannot become the best move.
+	 */
+	private int searchRootParallel(int[] moves, int[] scores, int count, int depth) {
+		this.makeMove(moves[0], turn);
+		scores[0] = this.search(Integer.MIN_VALUE, Integer.MAX_VALUE, 1, depth - 1, opponent);
+		this.unmakeMove();
+		if (aborted) {
+			return 0;
+		}
+		AtomicInteger alpha = new AtomicInteger(scores[0]);
+		AtomicInteger next = new AtomicInteger(1);
+		boolean[] exact = new boolean[count];
+		ForkJoinTask<?>[] tasks = new ForkJoinTask<?>[helpers.length];
+		for (int t = 0; t < helpers.length; t++) {
+			tasks[t] = pool().submit(new RootSearch(helpers[t], moves, scores, exact, count, depth, alpha, next));
+		}
+		for (int t = 0; t < helpers.length; t++) {
+			tasks[t].join();
+		}
+		for (int t = 1; t < helpers.length; t++) {
+			nodes += helpers[t].nodes;
+			helpers[t].nodes = 0;
+			aborted |= helpers[t].aborted;
+		}
+		int best = 0;
+		for (int i = 1; i < count; i++) {
+			if (exact[i] && scores[i] > scores[best]) {
+				best = i;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * RootSearch is the work of one thread of searchRootParallel(): it takes
+	 * root moves from the shared counter and searches them on its own player
+	 * until none are left or the search aborts.
+	 */
+	private static class RootSearch extends RecursiveAction {
+		private final static long serialVersionUID = 1L;
+		private MachinePlayer player;
+		private int[] moves;
+		private int[] scores;
+		private boolean[] exact;
+		private int count;
+		private int depth;
+		private AtomicInteger alpha;
+		private AtomicInteger next;
+
+		RootSearch(MachinePlayer player, int[] moves, int[] scores, boolean[] exact, int count, int depth,
+				AtomicInteger alpha, AtomicInteger next) {
+			this.player = player;
+			this.moves = moves;
+			this.scores = scores;
+			this.exact = exact;
+			this.count = count;
+			this.depth = depth;
+			this.alpha = alpha;
+			this.next = next;
+		}
+
+		protected void compute() {
+			for (int i = next.getAndIncrement(); i < count; i = next.getAndIncrement()) {
+				int bound = alpha.get();
+				player.makeMove(moves[i], player.turn);
+				int score = player.search(bound, Integer.MAX_VALUE, 1, depth - 1, player.opponent);
+				player.unmakeMove();
+				if (player.aborted) {
+					return;
+				}
+				scores[i] = score;
+				exact[i] = score > bound;
+				while (score > bound && !alpha.compareAndSet(bound, score)) {
+					bound = alpha.get();
+				}
+			}
+		}
+	}
+
+	/**
+	 * pool() returns the pool of the parallel root search, replacing it when
+	 * THREADS has changed
+	 */
+	private static synchronized ForkJoinPool pool() {
+		if (pool == null || pool.getParallelism() != THREADS) {
+			if (pool != null) {
+				pool.shutdown();
+			}
+			pool = new ForkJoinPool(THREADS);
+		}
+		return pool;
+	}
+
+	/**
+	 * sortMoves() sorts the first count moves by descending score; the sort
+	 * is stable, so moves of equal score keep their order
+	 */
+	private static void sortMoves(int[] moves, int[] scores, int count) {
+		for (int i = 1; i < count; i++) {
+			int m = moves[i];
+			int score = scores[i];
+			int j = i - 1;
+			while (j >= 0 && scores[j] < score) {
+				moves[j + 1] = moves[j];
+				scores[j + 1] = scores[j];
+				j--;
+			}
+			moves[j + 1] = m;
+			scores[j + 1] = score;
+		}
+	}
+
 	/**
 	 * abtree() is the game tree to find the best move for chooseMove method,
-	 * it uses alpha-beta pruning to speed up the process
+	 * it uses alpha-beta pruning to speed up the process. It searches to the
+	 * player's full search depth without a time limit; chooseMove() uses
+	 * iterativeDeepening() instead.
 	 * @param alpha, a score the computer knows with certainty it can achieve,
 	 * begins with Integer.MIN_VALUE in chooseMove() method
-	 * @param beta, the opponent can achieve a score of beta or better, begins with 
+	 * @param beta, the opponent can achieve a score of beta or better, begins with
 	 * Integer.MAX_VALUE in chooseMove() method
 	 * @param searchDepth, the current depth level of recursion, begins with 0 in
-	 * chooseMove() method 
+	 * chooseMove() method
 	 * @param board, the board for performing potential moves, begins with this.board
 	 * in chooseMove() method
 	 * @param turn, the turn of the current recursion, begins with this.turn
 	 * IN chooseMove() method
-	 * @return myBest, a BestMove object to store the best move, with best score 
+	 * @return myBest, a BestMove object to store the best move, with best score
 	 */
 	public BestMove abtree(int alpha, int beta, int searchDepth, SimpleBoard board, int turn) {
 		BestMove myBest = new BestMove();
-		BestMove reply;
-		Connection c1 = new Connection();
-		Connection c2 = new Connection();
-		// Compute the score of current board, as well as check if game ends
-		this.findPaths(turn);
-		c1 = this.checkPaths(turn);
-		this.findPaths((turn + 1) % 2);
-		c2 = this.checkPaths((turn + 1) % 2);
-		Connection c = new Connection();
-		c.setScore(c1.getScore() + c2.getScore());
-		c.setEnd(c1.isEnd() || c2.isEnd());
-		// If the game ends, or comes to the specified SEARCHDEPTH
-		if (c.isEnd() || searchDepth == MachinePlayer.SEARCHDEPTH) {
-			// Set the score to be current score, no extra move
-			myBest.score = c.getScore();
-			// Adjust the score according to winning chance and current depth
-			if (c.isEnd()) {
-				if (myBest.score > 0) {
-					if (myBest.score - searchDepth > 0) {
-						myBest.score -= searchDepth;
-					} else {
-						myBest.score = 5;
+		bestMoves[searchDepth] = Moves.NONE;
+		myBest.score = search(alpha, beta, searchDepth, maxDepth - searchDepth, turn);
+		myBest.depth = maxDepth - searchDepth;
+		if (bestMoves[searchDepth] != Moves.NONE) {
+			myBest.move = Moves.decode(bestMoves[searchDepth]);
+		}
+		return myBest;
+	}
+
+	/**
+	 * search() is the recursive alpha-beta search behind abtree() and
+	 * iterativeDeepening(). Every few nodes it checks the clock; past the
+	 * deadline it sets aborted and unwinds without searching further.
+	 * Results are kept in the transposition table (when there is one): a
+	 * position searched at least as deep before is answered from it, and
+	 * otherwise its stored best move is searched first. Win scores depend on
+	 * the ply they were found at, so a transposition reached at another ply
+	 * may be off by a few points. Moves are generated into the buffer of the
+	 * ply, so the search allocates no moves.
+	 * @param alpha, a score the computer knows with certainty it can achieve
+	 * @param beta, the opponent can achieve a score of beta or better
+	 * @param ply, number of moves made since the root
+	 * @param depth, number of moves left to search
+	 * @param turn, the turn of the player to move
+	 * @return the score of the position; the best move searched is left in
+	 * bestMoves[ply]
+	 */
+	private int search(int alpha, int beta, int ply, int depth, int turn) {
+		if (tick()) {
+			return 0;
+		}
+		long key = board.positionKey(turn);
+		int tableMove = Moves.NONE;
+		if (table != null) {
+			long entry = table.probe(key);
+			if (entry != 0) {
+				tableMove = TranspositionTable.move(entry);
+				if (TranspositionTable.depth(entry) >= depth) {
+					int score = TranspositionTable.score(entry);
+					int bound = TranspositionTable.bound(entry);
+					if (bound == TranspositionTable.EXACT || (bound == TranspositionTable.LOWER && score >= beta)
+							|| (bound == TranspositionTable.UPPER && score <= alpha)) {
+						return score;
 					}
-				} else if (myBest.score < 0) {
-					if (myBest.score + searchDepth < 0) {
-						myBest.score += searchDepth;
-					} else {
-						myBest.score = -5;
+				}
+			}
+		}
+		// interior nodes only need to know whether the game is over, which
+		// only the last move can have changed; the networks are scored at the
+		// horizon and at the end of the game
+		if (depth <= 0 || !LAZYEVAL || lastMoveEnds()) {
+			Connection c1 = new Connection();
+			Connection c2 = new Connection();
+			// Compute the score of current board, as well as check if game ends
+			c1 = this.checkPaths(turn);
+			c2 = this.checkPaths((turn + 1) % 2);
+			Connection c = new Connection();
+			c.setScore(c1.getScore() + c2.getScore());
+			c.setEnd(c1.isEnd() || c2.isEnd());
+			// If the game ends, or comes to the specified depth
+			if (c.isEnd() || depth <= 0) {
+				// at the horizon, a player to move who can complete a network
+				// wins; the winning move is searched one ply deeper
+				if (!c.isEnd() && THREATS > 0 && ply < MAX_PLY - 1 && findWins(turn, ply, false) != 0) {
+					this.makeMove(bestMoves[ply], turn);
+					int score = this.search(alpha, beta, ply + 1, 0, turn == this.turn ? this.opponent : this.turn);
+					this.unmakeMove();
+					return score;
+				}
+				// Set the score to be current score, no extra move
+				int score = c.getScore();
+				// Adjust the score according to winning chance and current depth
+				if (c.isEnd()) {
+					if (score > 0) {
+						if (score - ply > 0) {
+							score -= ply;
+						} else {
+							score = 5;
+						}
+					} else if (score < 0) {
+						if (score + ply < 0) {
+							score += ply;
+						} else {
+							score = -5;
+						}
 					}
 				}
+				return score;
 			}
-			return myBest;
 		}
 
+		int bestScore;
 		if (turn == this.turn) {
-			myBest.score = alpha;
+			bestScore = alpha;
 		} else {
-			myBest.score = beta;
+			bestScore = beta;
 		}
+		int bestMove = Moves.NONE;
+		int alphaIn = alpha;
+		int betaIn = beta;
 		// find all legal moves
-		Move[] moves = this.findAllMoves(turn);
-		myBest.move = moves[0];
-		// for each legal move
-		for (Move m : moves) {
-			if (m == null) {
-				break;
+		IntMoveList moves = moveLists[ply];
+		generateMoves(turn, moves);
+		// if the opponent could complete a network next, only the moves that
+		// land on a square its networks need, and a win of our own, can save
+		// the game; if none can, the first move is kept to score the loss
+		if (BLOCK && moves.size() > 0) {
+			long block = findWins(turn == this.turn ? this.opponent : this.turn, ply, true);
+			if (block != 0) {
+				int first = moves.get(0);
+				moves.retain(block, findWins(turn, ply, false) != 0 ? bestMoves[ply] : Moves.NONE);
+				if (moves.size() == 0) {
+					moves.add(first);
+				}
 			}
-			// record the current board
-			MachinePlayer player = this.clone();
-			// perform move m
-			if (turn == player.turn) {
-				player.forceMove(m);
-			} else if (turn == player.opponent) {
-				player.opponentMove(m);
+		}
+		int count = moves.size();
+		if (ORDERING) {
+			orderKeys(moves, ply, tableMove);
+		}
+		boolean ordered = !ORDERING;
+		// late move reductions apply in the STEP phase, to nodes deep enough
+		// that a reduced search still looks one move ahead
+		boolean reducible = LMR && depth >= 3 && machineChipsNum == 10 && oppoChipsNum == 10;
+		long lines = reducible ? linkSquares(WHITE_FIRST) | linkSquares(BLACK_SECOND) : 0;
+		// the mover's chips that cut links of the other color
+		long blocking = reducible ? board.blockers(1 - turn) : 0;
+		// for each legal move, best ordered first
+		for (int i = 0; i < count; i++) {
+			if (!ordered) {
+				ordered = pickMove(moves, i) == 0;
+			}
+			int m = moves.get(i);
+			if (i == 0) {
+				bestMove = m;
 			}
+			// a late quiet move lands off every connection line of both
+			// colors, so that it cuts no link, and lifts a chip that has no
+			// link of its own and cuts no link of the other color
+			boolean quiet = reducible && i >= LATE_MOVES && moves.key(i) < Integer.MAX_VALUE - 2
+					&& (lines & (1L << Moves.to(m))) == 0 && (Moves.kind(m) != Move.STEP
+							|| (graphs[turn].adjacency(slotAt[Moves.from(m)]) == 0
+									&& (blocking & (1L << Moves.from(m))) == 0));
+			// perform move m
+			this.makeMove(m, turn);
 			// change the turn
 			int nextTurn = turn == this.turn ? this.opponent : this.turn;
-			// recursively call abtree for the next turn
-			reply = player.abtree(alpha, beta, searchDepth + 1, player.board, nextTurn);
+			// a late quiet move is searched one ply shallower with a null
+			// window first; only if it then beats the best move so far is it
+			// verified at full depth
+			int reply = 0;
+			boolean done = false;
+			if (quiet) {
+				if (turn == this.turn) {
+					reply = this.search(alpha, alpha + 1, ply + 1, depth - 2, nextTurn);
+					done = reply <= alpha;
+				} else {
+					reply = this.search(beta - 1, beta, ply + 1, depth - 2, nextTurn);
+					done = reply >= beta;
+				}
+			}
+			// recursively search the next turn; with PVS, moves after the first
+			// only have to show with a null window that they beat the best so far
+			if (done || aborted) {
+				// the reduced search settled the move
+			} else if (PVS && i > 0 && alpha < beta - 1) {
+				if (turn == this.turn) {
+					reply = this.search(alpha, alpha + 1, ply + 1, depth - 1, nextTurn);
+				} else {
+					reply = this.search(beta - 1, beta, ply + 1, depth - 1, nextTurn);
+				}
+				if (reply > alpha && reply < beta) {
+					reply = this.search(alpha, beta, ply + 1, depth - 1, nextTurn);
+				}
+			} else {
+				reply = this.search(alpha, beta, ply + 1, depth - 1, nextTurn);
+			}
 			// undo move m
+			this.unmakeMove();
+			if (aborted) {
+				return bestScore;
+			}
 			// If this turn is myTurn
-			if ((turn == this.turn) && (reply.score > myBest.score)) {
-				myBest.move = m;
-				myBest.score = reply.score;
-				alpha = reply.score;
+			if ((turn == this.turn) && (reply > bestScore)) {
+				bestMove = m;
+				bestScore = reply;
+				alpha = reply;
 			}
 			// If this turn is opponent's turn
-			else if (turn == this.opponent && reply.score < myBest.score) {
-				myBest.move = m;
-				myBest.score = reply.score;
-				beta = reply.score;
+			else if (turn == this.opponent && reply < bestScore) {
+				bestMove = m;
+				bestScore = reply;
+				beta = reply;
 			}
 			// alpha - beta pruning
 			if (alpha >= beta) {
-				return myBest;
+				recordCutoff(m, ply, depth);
+				break;
 			}
 		}
-		return myBest;
+		bestMoves[ply] = bestMove;
+		if (table != null && bestMove != Moves.NONE) {
+			int bound = TranspositionTable.EXACT;
+			if (bestScore <= alphaIn) {
+				bound = TranspositionTable.UPPER;
+			} else if (bestScore >= betaIn) {
+				bound = TranspositionTable.LOWER;
+			}
+			table.store(key, depth, bound, bestScore, bestMove);
+		}
+		return bestScore;
+	}
+
+
+
+	/**
+	 * tick() counts a node of the search and every 256 nodes checks the
+	 * clock and the stop flags; past the deadline it sets aborted
+	 * @return aborted
+	 */
+	private boolean tick() {
+		if ((++nodes & 255) == 0 && (stop || (parent != null && parent.stop) || System.currentTimeMillis() > deadline)) {
+			aborted = true;
+		}
+		return aborted;
+	}
+
+	/**
+	 * forcedWin() runs the threat-space search for this player ahead of the
+	 * main search of chooseMove()
+	 * @param deadline, the time by which the threat search has to give up
+	 * @return the first move of a forced win, or Moves.NONE if none was found
+	 */
+	int forcedWin(long deadline) {
+		if (THREATS <= 0 || over) {
+			return Moves.NONE;
+		}
+		this.deadline = deadline;
+		this.aborted = false;
+		int move = threatSearch(turn, 0, THREATS);
+		this.deadline = Long.MAX_VALUE;
+		this.aborted = false;
+		return move;
+	}
+
+	/**
+	 * threatSearch() looks for a forced win made only of threats: moves after
+	 * which the attacker could complete a network next, so the defender has
+	 * to block. Only the attacker's moves that form a new link are tried as
+	 * threats, and only the defender's moves that land on a square the
+	 * threatened networks need are tried as replies; every other reply loses
+	 * at once. A win it returns is proven, but it does not find every win.
+	 * Neither color may have a network when it is called.
+	 * @param color, the attacker, to move
+	 * @param ply, number of moves made since the root
+	 * @param threats, number of threat moves left before the attacker has
+	 * to win at once
+	 * @return the first move of a forced win, or Moves.NONE if none was
+	 * found or the search aborted
+	 */
+	private int threatSearch(int color, int ply, int threats) {
+		if (tick()) {
+			return Moves.NONE;
+		}
+		if (findWins(color, ply, false) != 0) {
+			return bestMoves[ply];
+		}
+		if (threats <= 0) {
+			return Moves.NONE;
+		}
+		int other = color == this.turn ? this.opponent : this.turn;
+		long own = board.getChips(color);
+		long occupied = board.getOccupied();
+		IntMoveList moves = moveLists[ply];
+		generateMoves(color, moves);
+		int count = moves.size();
+		// squares from which a new chip sees at least one own chip
+		long targets = linkable(own, occupied, -1L);
+		int from = -1;
+		for (int i = 0; i < count; i++) {
+			int m = moves.get(i);
+			if (Moves.kind(m) == STEP && Moves.from(m) != from) {
+				from = Moves.from(m);
+				targets = linkable(own & ~(1L << from), occupied & ~(1L << from), -1L);
+			}
+			if ((targets & (1L << Moves.to(m))) == 0) {
+				continue;
+			}
+			this.makeMove(m, color);
+			boolean forced = false;
+			long block = completes(m, color, other) ? 0 : findWins(color, ply + 1, true);
+			if (block != 0 && findWins(other, ply + 1, false) == 0) {
+				forced = defend(other, ply + 1, threats, block);
+			}
+			this.unmakeMove();
+			if (aborted) {
+				return Moves.NONE;
+			}
+			if (forced) {
+				return m;
+			}
+		}
+		return Moves.NONE;
+	}
+
+	/**
+	 * defend() tries the replies to a threat of threatSearch()
+	 * @param color, the defender, to move
+	 * @param ply, number of moves made since the root
+	 * @param threats, the threats left to the attacker, this one included
+	 * @param block, the squares the defender has to land on to stop the
+	 * threat, from findWins()
+	 * @return whether every reply loses
+	 */
+	private boolean defend(int color, int ply, int threats, long block) {
+		int attacker = color == this.turn ? this.opponent : this.turn;
+		IntMoveList replies = moveLists[ply];
+		generateMoves(color, replies);
+		int count = replies.size();
+		for (int i = 0; i < count; i++) {
+			int r = replies.get(i);
+			if ((block & (1L << Moves.to(r))) == 0) {
+				continue;
+			}
+			this.makeMove(r, color);
+			boolean refuted = !completes(r, color, attacker) && threatSearch(attacker, ply + 1, threats - 1) == Moves.NONE;
+			this.unmakeMove();
+			if (refuted || aborted) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * findWins() looks for the moves of a color that complete a network. A
+	 * move can only complete one through its own chip, or through the link a
+	 * STEP opens across the square it leaves. So unless the move opens such a
+	 * link, its chip has to link to two chips (one in a goal), and the chips
+	 * it links to have to be connected to both goals and to 4 more chips;
+	 * all other moves are skipped without being made. The color must not
+	 * have a network already.
+	 * @param color, the color to move
+	 * @param ply, number of moves made since the root; the first winning
+	 * move is left in bestMoves[ply]
+	 * @param all, find every winning move instead of stopping at the first
+	 * @return 0 if no move wins, otherwise the squares the other color has
+	 * to land on to stop every winning move found: the present connection
+	 * lines of the color, and the squares that each winning move needs, its
+	 * destination and the connection lines of its chip. The dead corners
+	 * are added, so the mask is not 0 even if no square stops them all.
+	 */
+	private long findWins(int color, int ply, boolean all) {
+		int chipsNum = color == turn ? machineChipsNum : oppoChipsNum;
+		long own = board.getChips(color);
+		long goalA = color == WHITE_FIRST ? Squares.WHITE_GOAL_A : Squares.BLACK_GOAL_A;
+		long goalB = color == WHITE_FIRST ? Squares.WHITE_GOAL_B : Squares.BLACK_GOAL_B;
+		if (chipsNum < 5 || (own & (goalA | goalB)) == 0) {
+			return 0;
+		}
+		long occupied = board.getOccupied();
+		long open = board.openSquares(color);
+		long blocked = SimpleBoard.clusterSquares(own);
+		ChipGraph graph = graphs[color];
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		// the slots in each goal
+		int slotsA = 0;
+		int slotsB = 0;
+		for (int slot = 0; slot < chipsNum; slot++) {
+			long bit = Squares.bit(chips[slot].getX(), chips[slot].getY());
+			if ((goalA & bit) != 0) {
+				slotsA |= 1 << slot;
+			} else if ((goalB & bit) != 0) {
+				slotsB |= 1 << slot;
+			}
+		}
+		int wins = 0;
+		long block = -1L;
+		// one pass for ADD, one for the STEPs of each chip
+		int lifts = chipsNum < 10 ? 1 : chipsNum;
+		for (int lift = 0; lift < lifts && (all || wins == 0); lift++) {
+			int from = chipsNum < 10 ? -1 : Squares.square(chips[lift].getX(), chips[lift].getY());
+			// the chips of the color and all chips without the lifted chip
+			long rest = from < 0 ? own : own & ~(1L << from);
+			long others = from < 0 ? occupied : occupied & ~(1L << from);
+			long candidates = from < 0 ? open & ~blocked : stepTargets(from, own, open, blocked);
+			if ((rest & goalA) == 0) {
+				candidates &= goalA;
+			}
+			if ((rest & goalB) == 0) {
+				candidates &= goalB;
+			}
+			boolean opens = from >= 0 && opensLink(graph, lift);
+			if (!opens) {
+				candidates &= linkable(rest, others, goalA | goalB);
+				if (candidates != 0) {
+					components(graph, chipsNum, from < 0 ? -1 : lift);
+				}
+			}
+			for (; candidates != 0 && (all || wins == 0); candidates &= candidates - 1) {
+				int to = Long.numberOfTrailingZeros(candidates);
+				if (!opens) {
+					int linked = 0;
+					for (int d = 0; d < Squares.DIRECTIONS; d++) {
+						int square = Squares.firstAlong(d, to, others);
+						if (square >= 0 && (rest & (1L << square)) != 0) {
+							linked |= components[slotAt[square]];
+						}
+					}
+					if (((linked & slotsA) == 0 && (goalA & (1L << to)) == 0)
+							|| ((linked & slotsB) == 0 && (goalB & (1L << to)) == 0) || Integer.bitCount(linked) < 5) {
+						continue;
+					}
+				}
+				int m = from < 0 ? Moves.add(to) : Moves.step(from, to);
+				this.makeMove(m, color);
+				if (completes(m, color, color)) {
+					if (wins == 0) {
+						bestMoves[ply] = m;
+					}
+					wins++;
+					long needs = 1L << to;
+					int slot = slotAt[to];
+					for (int d = 0; d < Squares.DIRECTIONS; d++) {
+						int linked = graph.neighbor(slot, d);
+						if (linked >= 0) {
+							needs |= Squares.BETWEEN[to][Squares.square(chips[linked].getX(), chips[linked].getY())];
+						}
+					}
+					block &= needs;
+				}
+				this.unmakeMove();
+			}
+		}
+		return wins == 0 ? 0 : block | linkSquares(color) | Squares.CORNERS;
+	}
+
+	/**
+	 * components() finds the connected component of every chip of a graph,
+	 * as a mask of slots, into components
+	 * @param graph, the graph
+	 * @param chipsNum, number of chips in use
+	 * @param without, a slot to leave out of the graph, or -1
+	 */
+	private void components(ChipGraph graph, int chipsNum, int without) {
+		int skip = without < 0 ? 0 : 1 << without;
+		for (int slot = 0; slot < chipsNum; slot++) {
+			components[slot] = 0;
+		}
+		for (int slot = 0; slot < chipsNum; slot++) {
+			if (components[slot] != 0 || slot == without) {
+				continue;
+			}
+			int reach = 1 << slot;
+			for (int frontier = reach; frontier != 0;) {
+				int next = Integer.numberOfTrailingZeros(frontier);
+				int fresh = graph.adjacency(next) & ~reach & ~skip;
+				reach |= fresh;
+				frontier = (frontier & (frontier - 1)) | fresh;
+			}
+			for (int members = reach; members != 0; members &= members - 1) {
+				components[Integer.numberOfTrailingZeros(members)] = reach;
+			}
+		}
+	}
+
+	/**
+	 * linkable() returns the empty squares from which a new chip would see
+	 * two chips of its color, or one if the square is in goals; with goals
+	 * -1L that is every square seeing at least one chip
+	 * @param own, the bitboard of the color
+	 * @param occupied, the bitboard of all chips
+	 * @param goals, the goal squares of the color
+	 */
+	private static long linkable(long own, long occupied, long goals) {
+		long once = 0;
+		long twice = 0;
+		for (long rest = own; rest != 0; rest &= rest - 1) {
+			int square = Long.numberOfTrailingZeros(rest);
+			for (int d = 0; d < Squares.DIRECTIONS; d++) {
+				int first = Squares.firstAlong(d, square, occupied);
+				long seen = first < 0 ? Squares.RAYS[d][square] : Squares.BETWEEN[square][first];
+				twice |= once & seen;
+				once |= seen;
+			}
+		}
+		return (twice | (once & goals)) & ~occupied;
+	}
+
+	/**
+	 * opensLink() returns whether lifting a chip links the two chips of its
+	 * color on either side of it
+	 */
+	private static boolean opensLink(ChipGraph graph, int slot) {
+		for (int d = 0; d < Squares.DIRECTIONS; d += 2) {
+			if (graph.neighbor(slot, d) >= 0 && graph.neighbor(slot, d + 1) >= 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * lastMoveEnds() is the terminal test of search() at interior nodes
+	 * @return whether the last move made by makeMove() completed a network
+	 * of either color; with no move made, whether the game is over
+	 */
+	private boolean lastMoveEnds() {
+		if (undoTop == 0) {
+			return over;
+		}
+		int move = undoMoves[undoTop - 1];
+		int color = undoColors[undoTop - 1];
+		return completes(move, color, color) || completes(move, color, color == turn ? opponent : turn);
+	}
+
+	/**
+	 * completes() is the win check after a move. A move can complete a
+	 * network of its own color through the chip it places, and a STEP can
+	 * complete one of either color through the two chips it links across the
+	 * square it leaves; no other network can have appeared. So the network
+	 * search only starts from those chips, see
+	 * NetworkDetector.throughNetwork().
+	 * @param move, the move just made, packed by Moves
+	 * @param mover, the color that made it
+	 * @param color, the color to check
+	 * @return whether the move completed a network of color
+	 */
+	private boolean completes(int move, int mover, int color) {
+		long own = board.getChips(color);
+		long goalA = color == WHITE_FIRST ? Squares.WHITE_GOAL_A : Squares.BLACK_GOAL_A;
+		long goalB = color == WHITE_FIRST ? Squares.WHITE_GOAL_B : Squares.BLACK_GOAL_B;
+		if ((own & goalA) == 0 || (own & goalB) == 0) {
+			return false;
+		}
+		int slots = 0;
+		if (color == mover) {
+			slots |= 1 << slotAt[Moves.to(move)];
+		}
+		if (Moves.kind(move) == STEP) {
+			int from = Moves.from(move);
+			long occupied = board.getOccupied();
+			for (int d = 0; d < Squares.DIRECTIONS; d += 2) {
+				int a = Squares.firstAlong(d, from, occupied);
+				int b = Squares.firstAlong(d + 1, from, occupied);
+				if (a >= 0 && b >= 0 && (own & (1L << a)) != 0 && (own & (1L << b)) != 0) {
+					slots |= (1 << slotAt[a]) | (1 << slotAt[b]);
+				}
+			}
+		}
+		if (slots == 0) {
+			return false;
+		}
+		if (detector == null) {
+			detector = new NetworkDetector();
+		}
+		if (color == turn) {
+			return detector.throughNetwork(graphs[color], machineChips, machineChipsNum, color, slots);
+		}
+		return detector.throughNetwork(graphs[color], opponentChips, oppoChipsNum, color, slots);
+	}
+
+	/**
+	 * linkSquares() returns the squares on the connection lines of a color:
+	 * those strictly between two linked chips
+	 */
+	private long linkSquares(int color) {
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		int chipsNum = color == turn ? machineChipsNum : oppoChipsNum;
+		long lines = 0;
+		for (int slot = 0; slot < chipsNum; slot++) {
+			int square = Squares.square(chips[slot].getX(), chips[slot].getY());
+			for (int d = 1; d < Squares.DIRECTIONS; d += 2) {
+				int linked = graphs[color].neighbor(slot, d);
+				if (linked >= 0) {
+					lines |= Squares.BETWEEN[square][Squares.square(chips[linked].getX(), chips[linked].getY())];
+				}
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * orderKeys() gives every move of the list an ordering key: the
+	 * transposition table move first, then the two killer moves of this ply,
+	 * then the rest by their history score
+	 * @param moves, the moves of the node
+	 * @param ply, the ply of the node
+	 * @param tableMove, the move stored in the transposition table, or Moves.NONE
+	 */
+	private void orderKeys(IntMoveList moves, int ply, int tableMove) {
+		for (int i = 0; i < moves.size(); i++) {
+			int move = moves.get(i);
+			if (move == tableMove) {
+				moves.setKey(i, Integer.MAX_VALUE);
+			} else if (move == killers[ply][0]) {
+				moves.setKey(i, Integer.MAX_VALUE - 1);
+			} else if (move == killers[ply][1]) {
+				moves.setKey(i, Integer.MAX_VALUE - 2);
+			} else {
+				moves.setKey(i, history[historyIndex(move)]);
+			}
+		}
+	}
+
+	/**
+	 * pickMove() moves the move with the highest key among the moves from
+	 * index i on to index i (a selection sort done one step per searched
+	 * move, as a cutoff usually comes before all moves are needed)
+	 * @return the key of the picked move; once it is 0 the rest need no picking
+	 */
+	private static int pickMove(IntMoveList moves, int i) {
+		int best = i;
+		for (int j = i + 1; j < moves.size(); j++) {
+			if (moves.key(j) > moves.key(best)) {
+				best = j;
+			}
+		}
+		moves.swap(i, best);
+		return moves.key(i);
+	}
+
+	/**
+	 * recordCutoff() remembers a move that caused a cutoff, as a killer move of
+	 * its ply and in the history table
+	 */
+	private void recordCutoff(int move, int ply, int depth) {
+		if (killers[ply][0] != move) {
+			killers[ply][1] = killers[ply][0];
+			killers[ply][0] = move;
+		}
+		int index = historyIndex(move);
+		history[index] = Math.min(history[index] + depth * depth, Integer.MAX_VALUE - 3);
+	}
+
+	/**
+	 * historyIndex() returns the from/to index of a packed move in history;
+	 * ADD moves use from square 0, a corner no STEP can start from
+	 */
+	private static int historyIndex(int move) {
+		return Moves.from(move) * DIMENSION * DIMENSION + Moves.to(move);
+	}
+
+	/**
+	 * getNodes() returns the number of nodes the last chooseMove() searched
+	 */
+	long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * getEvaluations() returns the number of checkPaths() calls of the last
+	 * chooseMove()
+	 */
+	long getEvaluations() {
+		return evaluations;
+	}
+
+	/**
+	 * getEvalProbes() returns the number of evaluations the last
+	 * chooseMove() looked up in the evaluation cache
+	 */
+	long getEvalProbes() {
+		return evalProbes;
+	}
+
+	/**
+	 * getEvalHits() returns the number of those lookups that found the
+	 * evaluation in the cache
+	 */
+	long getEvalHits() {
+		return evalHits;
+	}
+
+	/**
+	 * getDepth() returns the depth of the last iteration the last
+	 * chooseMove() completed
+	 */
+	int getDepth() {
+		return completedDepth;
+	}
+
+	/**
+	 * setSearchDepth() sets the deepest iteration of chooseMove(), at most
+	 * MAX_DEPTH
+	 */
+	void setSearchDepth(int searchDepth) {
+		this.maxDepth = Math.min(searchDepth, MAX_DEPTH);
+	}
+
+	/**
+	 * getColor() returns the color of this player, WHITE_FIRST or BLACK_SECOND
+	 */
+	int getColor() {
+		return turn;
 	}
-  
-  
   
   /**
 	 * findAllMovesStep() method is when the player play 10 chips and enter into step mode
@@ -293,59 +1629,85 @@ public class MachinePlayer extends Player {
      * @return
      */
 	public Move[] findAllMoves(int turn) {
-		// step condition,which at most has 400 possibilities
-		Move[] stepMoves = new Move[400];
-		// add condition, which at most has 60 possibilities
-		Move[] addMoves = new Move[60];
-		// tempary array
-		Move[] tempMoves = new Move[40];
-		int count = 0;
 		if (turn == this.turn) {
 			// step condition
 			if (this.machineChipsNum == 10) {
-				stepMoves = findAllMovesStep(turn);
-				return stepMoves;
+				return findAllMovesStep(turn);
 				// the add condition
 			} else {
-				addMoves = findAllMovesAdd(turn);
-				return addMoves;
+				return findAllMovesAdd(turn);
 			}
 		} else {
 			// step condition
 			if (this.oppoChipsNum == 10) {
-				stepMoves = findAllMovesStep(turn);
-				return stepMoves;
+				return findAllMovesStep(turn);
 				// the add condition
 			} else {
-				addMoves = findAllMovesAdd(turn);
-				return addMoves;
+				return findAllMovesAdd(turn);
+			}
+		}
+	}
+
+	/**
+	 * generateMoves() is findAllMoves() for the search: it puts the legal
+	 * moves of a color, packed by Moves, into a reused buffer and allocates
+	 * nothing. The legal destinations come as one mask from the bitboards
+	 * (see SimpleBoard.clusterSquares()), and each move is one bit-scan. For
+	 * a STEP only the cluster squares within 2 of the lifted chip can change,
+	 * so just those are recomputed, from the chips within 4 of it. The moves
+	 * come in the same order as from findAllMoves().
+	 * @param color, the color to move
+	 * @param list, the buffer, cleared first
+	 */
+	void generateMoves(int color, IntMoveList list) {
+		list.clear();
+		long own = board.getChips(color);
+		long open = board.openSquares(color);
+		long blocked = SimpleBoard.clusterSquares(own);
+		if ((color == turn ? machineChipsNum : oppoChipsNum) < 10) {
+			for (long targets = open & ~blocked; targets != 0; targets &= targets - 1) {
+				list.add(Moves.add(Long.numberOfTrailingZeros(targets)));
+			}
+			return;
+		}
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		for (int i = 0; i < chips.length; i++) {
+			int from = Squares.square(chips[i].getX(), chips[i].getY());
+			for (long targets = stepTargets(from, own, open, blocked); targets != 0; targets &= targets - 1) {
+				list.add(Moves.step(from, Long.numberOfTrailingZeros(targets)));
 			}
 		}
 	}
 
+	/**
+	 * stepTargets() returns the legal destinations of a STEP of the chip on
+	 * a square, as generateMoves() finds them
+	 * @param from, the square of the chip
+	 * @param own, the bitboard of its color
+	 * @param open, the open squares of its color
+	 * @param blocked, SimpleBoard.clusterSquares() of own
+	 */
+	private static long stepTargets(int from, long own, long open, long blocked) {
+		long near = Squares.AREA2[from];
+		long rest = own & ~(1L << from) & Squares.AREA4[from];
+		return open & ~((blocked & ~near) | (SimpleBoard.clusterSquares(rest) & near));
+	}
+
 	// If the Move m is legal, records the move as a move by the opponent
 	// (updates the internal game board) and returns true. If the move is
 	// illegal, returns false without modifying the internal state of "this"
 	// player. This method allows your opponents to inform you of their moves.
 	public boolean opponentMove(Move m) {
 		if (board.isValidMove(m, opponent)) {
-			Chip chip = new Chip(m, this.opponent);
-			board.makeMove(m, opponent);
-			// ADD
-			if (m.moveKind == ADD) {
-				this.opponentChips[oppoChipsNum] = chip;
-				oppoChipsNum++;
-			}
-			// STEP
-			if (m.moveKind == STEP) {
-				Chip oldchip = new Chip(m.x2, m.y2, this.opponent);
-				for (int i = 0; i < oppoChipsNum; i++) {
-					if (opponentChips[i].equals(oldchip)) {
-						opponentChips[i] = chip;
-					}
-				}
+			int move = Moves.encode(m);
+			if (ponderThread != null && move == ponderMove) {
+				ponderHit = true;
+			} else {
+				stopPonder();
 			}
-
+			applyMove(move, opponent, findSlot(move, opponent));
+			over = over || completes(move, opponent, opponent) || completes(move, opponent, turn);
+			advance(move);
 			return true;
 		}
 		return false;
@@ -358,27 +1720,113 @@ public class MachinePlayer extends Player {
 	// player to solve.
 	public boolean forceMove(Move m) {
 		if (board.isValidMove(m, turn)) {
-			this.board.makeMove(m, turn);
-			Chip chip = new Chip(m, turn);
-			// ADD
-			if (m.moveKind == ADD) {
-				this.machineChips[machineChipsNum] = chip;
-				machineChipsNum++;
-			}
-			// STEP
-			if (m.moveKind == STEP) {
-				Chip oldchip = new Chip(m.x2, m.y2, turn);
-				for (int i = 0; i < machineChipsNum; i++) {
-					if (machineChips[i].equals(oldchip)) {
-						machineChips[i] = chip;
-					}
-				}
-			}
+			int move = Moves.encode(m);
+			stopPonder();
+			applyMove(move, turn, findSlot(move, turn));
+			over = over || completes(move, turn, turn) || completes(move, turn, opponent);
+			advance(move);
 			return true;
 		} else {
 			return false;
 		}
-	}  
+	}
+
+	/**
+	 * findSlot() finds the index of the chip array slot a move will change:
+	 * the first free slot for ADD, the slot of the moving chip for STEP
+	 * @param move, the move, packed by Moves
+	 * @param color, the color making the move
+	 * @return the slot index
+	 */
+	private int findSlot(int move, int color) {
+		if (Moves.kind(move) == ADD) {
+			return color == turn ? machineChipsNum : oppoChipsNum;
+		}
+		return slotAt[Moves.from(move)];
+	}
+
+	/**
+	 * applyMove() performs a legal move on the board, on the chip arrays
+	 * of the given color and on the connection graphs
+	 * @param move, the move packed by Moves, must be legal
+	 * @param color, the color making the move
+	 * @param slot, the slot found by findSlot()
+	 */
+	private void applyMove(int move, int color, int slot) {
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		int to = Moves.to(move);
+		long own = this.board.getChips(color);
+		long occupied = this.board.getOccupied();
+		if (Moves.kind(move) == STEP) {
+			int from = Moves.from(move);
+			own &= ~(1L << from);
+			occupied &= ~(1L << from);
+			slotAt[from] = -1;
+			ChipGraph.remove(graphs, slotAt, own, occupied, color, slot, from);
+			this.board.lift(from, color);
+		}
+		ChipGraph.place(graphs, slotAt, own, occupied, color, slot, to);
+		slotAt[to] = slot;
+		this.board.place(to, color);
+		chips[slot] = Chip.get(Squares.x(to), Squares.y(to), color);
+		if (Moves.kind(move) == ADD) {
+			if (color == turn) {
+				machineChipsNum++;
+			} else {
+				oppoChipsNum++;
+			}
+		}
+	}
+
+	/**
+	 * makeMove() performs a legal move of the given color and records it on
+	 * the undo stack, so that unmakeMove() can take it back. The search uses
+	 * makeMove()/unmakeMove() to walk the game tree on one player object.
+	 * @param move, the move packed by Moves, must be legal
+	 * @param color, the color making the move
+	 */
+	void makeMove(int move, int color) {
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		int slot = findSlot(move, color);
+		undoMoves[undoTop] = move;
+		undoColors[undoTop] = color;
+		undoSlots[undoTop] = slot;
+		undoChips[undoTop] = chips[slot];
+		undoTop++;
+		applyMove(move, color, slot);
+	}
+
+	/**
+	 * unmakeMove() takes back the last move made by makeMove()
+	 */
+	void unmakeMove() {
+		undoTop--;
+		int move = undoMoves[undoTop];
+		int color = undoColors[undoTop];
+		int slot = undoSlots[undoTop];
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		int to = Moves.to(move);
+		this.board.lift(to, color);
+		long own = this.board.getChips(color);
+		long occupied = this.board.getOccupied();
+		slotAt[to] = -1;
+		ChipGraph.remove(graphs, slotAt, own, occupied, color, slot, to);
+		if (Moves.kind(move) == STEP) {
+			int from = Moves.from(move);
+			ChipGraph.place(graphs, slotAt, own, occupied, color, slot, from);
+			slotAt[from] = slot;
+			this.board.place(from, color);
+		}
+		chips[slot] = undoChips[undoTop];
+		if (Moves.kind(move) == ADD) {
+			if (color == turn) {
+				machineChipsNum--;
+			} else {
+				oppoChipsNum--;
+			}
+		}
+		undoChips[undoTop] = null;
+	}
 
   /**
    * findNeighbor() method is to find all of the given chip's neighbors
@@ -388,7 +1836,7 @@ public class MachinePlayer extends Player {
    */
 	public List findNeighbor(Chip chip, int color) {
 		List neighbors = new SList();
-		int flag = chip.getDirect();
+		int flag = direct[Squares.square(chip.getX(), chip.getY())];
 		if (flag != HORIZONTAL) {
 			horizonCheck(chip, neighbors, color);
 		}
@@ -413,55 +1861,7 @@ public class MachinePlayer extends Player {
   * @param neighbors :the list to insert neighbors
   */
 	public void horizonCheck(Chip chip, List neighbors, int color) {
-		int x = chip.getX();
-		int y = chip.getY();
-		Chip[] chips;
-		if (color == turn) {
-			chips = this.machineChips;
-		} else {
-			chips = this.opponentChips;
-		}
-		int opponentValue = chip.getChipValue() == WHITE ? BLACK : WHITE;
-		boolean flag = true;
-		for (int i = x - 1; i >= 0; i--) {
-			if (this.board.elementAt(i, y) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, y) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == y && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(HORIZONTAL);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
-		flag = true;
-		for (int i = x + 1; i < 8; i++) {
-			if (this.board.elementAt(i, y) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, y) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == y && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(HORIZONTAL);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
+		lineCheck(chip, neighbors, color, HORIZONTAL);
 	}
   
   /**
@@ -472,55 +1872,7 @@ public class MachinePlayer extends Player {
    * @param neighbors :the list to insert neighbors
    */
 	public void vertiCheck(Chip chip, List neighbors, int color) {
-		int x = chip.getX();
-		int y = chip.getY();
-		Chip[] chips;
-		if (color == turn) {
-			chips = this.machineChips;
-		} else {
-			chips = this.opponentChips;
-		}
-		int opponentValue = chip.getChipValue() == WHITE ? BLACK : WHITE;
-		boolean flag = true;
-		for (int i = y - 1; i >= 0; i--) {
-			if (this.board.elementAt(x, i) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(x, i) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == x && chips[k].getY() == i && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(VERTICAL);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
-		flag = true;
-		for (int i = y + 1; i < 8; i++) {
-			if (this.board.elementAt(x, i) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(x, i) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == x && chips[k].getY() == i && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(VERTICAL);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
+		lineCheck(chip, neighbors, color, VERTICAL);
 	}
   
   /**
@@ -531,62 +1883,7 @@ public class MachinePlayer extends Player {
    * @param neighbors :the list to insert neighbors
    */
 	public void diagnfCheck(Chip chip, List neighbors, int color) {
-		int x = chip.getX();
-		int y = chip.getY();
-		Chip[] chips;
-		if (color == turn) {
-			chips = this.machineChips;
-		} else {
-			chips = this.opponentChips;
-		}
-		int opponentValue = chip.getChipValue() == WHITE ? BLACK : WHITE;
-		boolean flag = true;
-		int i = x, j = y;
-		while (i > 0 && j > 0) {
-			i--;
-			j--;
-			if (this.board.elementAt(i, j) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, j) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == j && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(DIAGONALF);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
-		flag = true;
-		i = x;
-		j = y;
-		while (i < DIMENSION - 1 && j < DIMENSION - 1) {
-			i++;
-			j++;
-			if (this.board.elementAt(i, j) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, j) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == j && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(DIAGONALF);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
+		lineCheck(chip, neighbors, color, DIAGONALF);
 	}
   
   /**
@@ -597,60 +1894,31 @@ public class MachinePlayer extends Player {
    * @param neighbors :the list to insert neighbors
    */
 	public void diagnbCheck(Chip chip, List neighbors, int color) {
-		int x = chip.getX();
-		int y = chip.getY();
-		Chip[] chips;
-		if (color == turn) {
-			chips = this.machineChips;
-		} else {
-			chips = this.opponentChips;
-		}
-		int opponentValue = chip.getChipValue() == WHITE ? BLACK : WHITE;
-		boolean flag = true;
-		int i = x, j = y;
-		while (i < DIMENSION - 1 && j > 0) {
-			i++;
-			j--;
-			if (this.board.elementAt(i, j) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, j) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == j && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(DIAGONALB);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
-				}
-				break;
-			}
-		}
-		flag = true;
-		i = x;
-		j = y;
-		while (i > 0 && j < DIMENSION - 1) {
-			i--;
-			j++;
-			if (this.board.elementAt(i, j) == opponentValue) {
-				flag = false;
-			}
-			if (flag && this.board.elementAt(i, j) == chip.getChipValue()) {
-				Chip neighborChip = null;
-				for (int k = 0; k < chips.length; k++) {
-					if (chips[k] != null) {
-						if (chips[k].getX() == i && chips[k].getY() == j && !chips[k].isVisited()) {
-							neighborChip = chips[k];
-							neighborChip.setDirect(DIAGONALB);
-							neighbors.insertBack(neighborChip);
-							break;
-						}
-					}
+		lineCheck(chip, neighbors, color, DIAGONALB);
+	}
+
+	/**
+	 * lineCheck() checks both rays of one line through the given chip. The
+	 * neighbors are read from the connection graph of the chip's color, which
+	 * applyMove() keeps up to date; a linked chip not visited yet is added,
+	 * and the line is recorded as the direction it was reached on.
+	 * @param chip :the given chip
+	 * @param neighbors :the list to insert neighbors
+	 * @param color :the color of the chip
+	 * @param line :HORIZONTAL, VERTICAL, DIAGONALF or DIAGONALB
+	 */
+	private void lineCheck(Chip chip, List neighbors, int color, int line) {
+		int slot = slotAt[Squares.square(chip.getX(), chip.getY())];
+		Chip[] chips = color == turn ? this.machineChips : this.opponentChips;
+		for (int d = 2 * (line - 1); d < 2 * line; d++) {
+			int linked = graphs[color].neighbor(slot, d);
+			if (linked >= 0) {
+				Chip neighborChip = chips[linked];
+				int square = Squares.square(neighborChip.getX(), neighborChip.getY());
+				if (!visited[square]) {
+					direct[square] = line;
+					neighbors.insertBack(neighborChip);
 				}
-				break;
 			}
 		}
 	}
@@ -727,9 +1995,8 @@ public class MachinePlayer extends Player {
    * @param chip
    */
 	public void findPath(int color, Chip chip) {
-		/* path store one possible path */
-		List path = new SList();
-		SList finalPath = new SList();
+		/* path store one possible path, as the squares of its chips */
+		IntDList path = new IntDList(ChipGraph.MAX_CHIPS);
 		/* paths store all possible paths of given chips */
 		List paths = null;
 		/* store each players chips which has already placed on the board */
@@ -754,15 +2021,16 @@ public class MachinePlayer extends Player {
 		}
 		for (Chip curr : chips) {
 			if (curr != null) {
-				curr.setVisited(false);
+				visited[Squares.square(curr.getX(), curr.getY())] = false;
 			}
 		}
 		// -----------using stack-like method to find the path-------------
-		chip.setVisited(true);
-		path.insertBack(chip);
+		int square = Squares.square(chip.getX(), chip.getY());
+		visited[square] = true;
+		path.insertBack(square);
 		try {
 			while (!path.isEmpty()) {
-				currentChip = (Chip) (path.back().item());
+				currentChip = chips[slotAt[path.item(path.back())]];
 				if (checkGoalArea(currentChip)) {
 					goalChip = true;
 				}
@@ -772,19 +2040,19 @@ public class MachinePlayer extends Player {
 					if (checkGoalArea(neighChip)) {
 						goalChip = true;
 					}
-					neighChip.setVisited(true);
-					path.insertBack(neighChip);
+					square = Squares.square(neighChip.getX(), neighChip.getY());
+					visited[square] = true;
+					path.insertBack(square);
 					flag = true;
 				} else {
 					if (flag) {
 						if (goalChip || (path.length() > pathLength)) {
 							pathLength = path.length();
-							finalPath = ((SList) path).Clone();
-							paths.insertBack(finalPath);
+							paths.insertBack(path.Clone());
 							goalChip = false;
 						}
 					}
-					((SList) path).pop();
+					path.pop();
 					flag = false;
 				}
 			}
@@ -811,95 +2079,61 @@ public class MachinePlayer extends Player {
 		}
 		for (Chip chip : chips) {
 			if (chip != null) {
-				chip.setDirect(0);
+				direct[Squares.square(chip.getX(), chip.getY())] = 0;
 				this.findPath(color, chip);
 			}
 		}
 	}
   
 	/**
-	 * checkPaths() evaluates of all paths of specified color, computes the score
+	 * checkPaths() evaluates the networks of specified color, computes the score
 	 * for computer's confidence in winning the game, and checks whether the game
-	 * comes to an end. It has to be called after findPaths.
+	 * comes to an end. The score is 100 for a finished network, otherwise the
+	 * score of the best partial network: 10 for each chip in a goal and 5 for
+	 * every other chip. It reads the connection graph through the detector and
+	 * does not need findPaths. Results are kept in the evaluation cache, keyed
+	 * by SimpleBoard.structureKey().
 	 * @param color, the specified color
 	 * @return conn, a Connection object, record highest score of all paths, 
 	 * and whether game comes to an end. 
 	 */
 	public Connection checkPaths(int color) {
-		List paths = null;
 		Connection conn = new Connection();
-		/*
-		 * count the number of chips in the goal area, like A is like the left
-		 * area
-		 */
-		int countGoalAreaA = 0;
-		int countGoalAreaB = 0;
-		if (color == turn) {
-			paths = machinePaths;
-		} else if (color == opponent) {
-			paths = opponentPaths;
+		int maxScore;
+		evaluations++;
+		long key = 0;
+		int cached = EvaluationCache.MISS;
+		if (EVALMEGABYTES > 0) {
+			if (evalCache == null) {
+				evalCache = new EvaluationCache(EVALMEGABYTES);
+			}
+			key = board.structureKey(color);
+			cached = evalCache.probe(key);
+			evalProbes++;
 		}
-		int score;
-		/* count the max score of the path */
-		int maxScore = 0;
-		ListNode node = paths.front();
-		ListNode chipNode = null;
-		List path = null;
-		Chip chip = null;
-		int count;
-		int orderCount;
-		try {
-			while (node.isValidNode()) {
-				path = (List) node.item();
-				score = 0;
-				countGoalAreaA = 0;
-				countGoalAreaB = 0;
-				chipNode = path.front();
-				count = 0;
-				orderCount = 0;
-				while (chipNode.isValidNode()) {
-					chip = (Chip) chipNode.item();
-					count++;
-					if (checkGoalAreaA(chip)) {
-						countGoalAreaA++;
-						score += 10;
-						chipNode = chipNode.next();
-						// check wheter this chip is the first chip or the last
-						// chip
-						if (count == 1 || count == path.length()) {
-							orderCount++;
-						}
-						continue;
-					}
-					if (checkGoalAreaB(chip)) {
-						countGoalAreaB++;
-						score += 10;
-						chipNode = chipNode.next();
-						if (count == 1 || count == path.length()) {
-							orderCount++;
-						}
-						continue;
-					}
-					score += 5;
-					chipNode = chipNode.next();
-				}
-				if (countGoalAreaA > 1 || countGoalAreaB > 1) {
-					score = 0;
-				}
-				if (countGoalAreaA == 1 && countGoalAreaB == 1 && orderCount == 2) {
-					if (path.length() >= 6) {
-						maxScore = 100;
-						conn.setEnd(true);
-						break;
-					}
-				}
-				if (maxScore < score) {
-					maxScore = score;
-				}
-				node = node.next();
+		if (cached != EvaluationCache.MISS) {
+			// the cache holds the score times 2, plus 1 for a network
+			evalHits++;
+			maxScore = cached >> 1;
+			conn.setEnd((cached & 1) != 0);
+		} else {
+			if (detector == null) {
+				detector = new NetworkDetector();
+			}
+			if (color == turn) {
+				detector.evaluate(graphs[color], machineChips, machineChipsNum, color);
+			} else {
+				detector.evaluate(graphs[color], opponentChips, oppoChipsNum, color);
+			}
+			if (detector.isNetwork()) {
+				maxScore = 100;
+				conn.setEnd(true);
+			} else {
+				maxScore = detector.getScore();
+			}
+			if (EVALMEGABYTES > 0) {
+				evalCache.store(key, (maxScore << 1) | (conn.isEnd() ? 1 : 0));
 			}
-		} catch (InvalidNodeException e) {
-			e.printStackTrace();
 		}
 		if (color == turn) {
 			conn.setScore(maxScore);
@@ -0,0 +1,74 @@
+package player;
+
+import board.Squares;
+
+/**
+ *  Moves packs a Move into a single int, for tables that must not hold
+ *  objects.  Bits 0-5 hold the square the chip moves to, bits 6-11 the
+ *  square a STEP moves from, and bits 12-13 the move kind.  0 means "no
+ *  move", since every ADD or STEP has a nonzero kind.
+ */
+final class Moves {
+	public final static int NONE = 0;
+
+	private Moves() {
+	}
+
+	/**
+	 * encode() packs a move into an int
+	 */
+	public static int encode(Move m) {
+		int to = Squares.square(m.x1, m.y1);
+		if (m.moveKind == Move.STEP) {
+			return (Move.STEP << 12) | (Squares.square(m.x2, m.y2) << 6) | to;
+		}
+		return (m.moveKind << 12) | to;
+	}
+
+	/**
+	 * add() packs an ADD move to a square
+	 */
+	public static int add(int to) {
+		return (Move.ADD << 12) | to;
+	}
+
+	/**
+	 * step() packs a STEP move from one square to another
+	 */
+	public static int step(int from, int to) {
+		return (Move.STEP << 12) | (from << 6) | to;
+	}
+
+	/**
+	 * decode() turns a packed move back into a Move
+	 */
+	public static Move decode(int move) {
+		int to = to(move);
+		if (kind(move) == Move.STEP) {
+			return new Move(Squares.x(to), Squares.y(to), Squares.x(from(move)), Squares.y(from(move)));
+		}
+		return new Move(Squares.x(to), Squares.y(to));
+	}
+
+	/**
+	 * kind() returns the Move kind (ADD or STEP) of a packed move
+	 */
+	public static int kind(int move) {
+		return move >>> 12;
+	}
+
+	/**
+	 * from() returns the square a packed STEP moves from
+	 */
+	public static int from(int move) {
+		return (move >>> 6) & 63;
+	}
+
+	/**
+	 * to() returns the square a packed move puts its chip on
+	 */
+	public static int to(int move) {
+		return move & 63;
+	}
+
+}
@@ -0,0 +1,371 @@
+package player;
+
+import board.Squares;
+
+/**
+ *  NetworkDetector finds networks and partial networks of one color in its
+ *  ChipGraph.  A path is a sequence of linked chips that never visits a chip
+ *  twice and changes line at every chip; goal chips may only be its ends,
+ *  and each goal holds at most one of its chips.  A network is such a path
+ *  of 6 or more chips from one goal to the other.
+ *
+ *  With at most 10 chips a path is fully described by (current chip,
+ *  incoming line, visited-chip bitmask), so both searches are memoized over
+ *  those 10 * 5 * 1024 states in primitive arrays.  The arrays are reused by
+ *  every evaluate() call; a stamp per call replaces clearing them.
+ *
+ *  throughNetwork() answers the narrower question a move raises: is there a
+ *  network through one of the chips the move affected.  It walks the half
+ *  paths from such a chip to each goal and joins a half path to one goal
+ *  with a disjoint one to the other.
+ */
+class NetworkDetector {
+	private final static int MAX_CHIPS = ChipGraph.MAX_CHIPS;
+	private final static int LINES = 5;
+	private final static int STATES = MAX_CHIPS * LINES * (1 << MAX_CHIPS);
+	private final static int NETWORK_LENGTH = 6;
+	private final static int GOAL_SCORE = 10;
+	private final static int CHIP_SCORE = 5;
+
+	// goal of each slot: 0 for none, 1 for the left/top goal, 2 for the right/bottom goal
+	private int[] goal;
+	// slots in each goal
+	private int[] goalSlots;
+	private ChipGraph graph;
+
+	// memo of extend(), valid where bestStamp == stamp
+	private int[] best;
+	private int[] bestStamp;
+	// memo of reachesGoal(), valid where reachStamp == stamp
+	private boolean[] reach;
+	private int[] reachStamp;
+	private int stamp;
+
+	// half paths of throughNetwork() by goal: visited chips and the line
+	// they leave the start chip on
+	private int[][] halfVisited;
+	private int[][] halfLine;
+	private int[] halfCount;
+	// a half path is recorded once per (goal, first line, visited), and a
+	// walk state (chip, line, visited, first line) is entered once, where
+	// the stamps equal stamp
+	private int[] halfStamp;
+	private int[] walkStamp;
+	private int start;
+
+	// results of the last evaluate()
+	private boolean network;
+	private int score;
+	private int length;
+
+	public NetworkDetector() {
+		goal = new int[MAX_CHIPS];
+		goalSlots = new int[3];
+		best = new int[STATES];
+		bestStamp = new int[STATES];
+		reach = new boolean[STATES];
+		reachStamp = new int[STATES];
+		stamp = 0;
+		halfVisited = new int[3][LINES << MAX_CHIPS];
+		halfLine = new int[3][LINES << MAX_CHIPS];
+		halfCount = new int[3];
+		halfStamp = new int[(3 * LINES) << MAX_CHIPS];
+		walkStamp = new int[STATES * LINES];
+	}
+
+	/**
+	 * evaluate() searches the graph of one color for a network and for its
+	 * best partial network
+	 * @param graph, the connection graph of the color
+	 * @param chips, the chips of the color, by slot
+	 * @param chipsNum, number of chips in use
+	 * @param color, WHITE_FIRST or BLACK_SECOND
+	 */
+	public void evaluate(ChipGraph graph, Chip[] chips, int chipsNum, int color) {
+		prepare(graph, chips, chipsNum, color);
+		network = false;
+		score = 0;
+		length = 0;
+		for (int i = 0; i < chipsNum; i++) {
+			int pathScore = chipScore(i) + extend(i, 0, 1 << i);
+			if (pathScore > score) {
+				score = pathScore;
+				length = pathLength(i, 0, 1 << i);
+			}
+			if (!network && goal[i] == 1 && chipsNum >= NETWORK_LENGTH) {
+				network = reachesGoal(i, 0, 1 << i);
+			}
+		}
+	}
+
+	/**
+	 * throughNetwork() checks whether the graph of one color holds a network
+	 * through at least one of some chips. A move can only complete a network
+	 * through the chips it places or links, so this finds every network a
+	 * move completed without searching from every chip.
+	 * @param graph, the connection graph of the color
+	 * @param chips, the chips of the color, by slot
+	 * @param chipsNum, number of chips in use
+	 * @param color, WHITE_FIRST or BLACK_SECOND
+	 * @param slots, the mask of the slots a network has to go through
+	 */
+	public boolean throughNetwork(ChipGraph graph, Chip[] chips, int chipsNum, int color, int slots) {
+		if (chipsNum < NETWORK_LENGTH || slots == 0) {
+			return false;
+		}
+		prepare(graph, chips, chipsNum, color);
+		if (goalSlots[1] == 0 || goalSlots[2] == 0) {
+			return false;
+		}
+		for (; slots != 0; slots &= slots - 1) {
+			int slot = Integer.numberOfTrailingZeros(slots);
+			// the chips connected to the chip at all have to reach both goals
+			int reach = 1 << slot;
+			for (int frontier = reach; frontier != 0;) {
+				int fresh = graph.adjacency(Integer.numberOfTrailingZeros(frontier)) & ~reach;
+				reach |= fresh;
+				frontier = (frontier & (frontier - 1)) | fresh;
+			}
+			if ((reach & goalSlots[1]) == 0 || (reach & goalSlots[2]) == 0 || Integer.bitCount(reach) < NETWORK_LENGTH) {
+				continue;
+			}
+			stamp++;
+			start = slot;
+			halfCount[1] = 0;
+			halfCount[2] = 0;
+			walk(slot, 0, 1 << slot, 0);
+			if (goal[slot] != 0) {
+				// a network ends at the chip, so one half path is all of it
+				int other = 3 - goal[slot];
+				for (int i = 0; i < halfCount[other]; i++) {
+					if (Integer.bitCount(halfVisited[other][i]) >= NETWORK_LENGTH) {
+						return true;
+					}
+				}
+				continue;
+			}
+			for (int i = 0; i < halfCount[1]; i++) {
+				for (int j = 0; j < halfCount[2]; j++) {
+					int visited = halfVisited[1][i] | halfVisited[2][j];
+					if ((halfVisited[1][i] & halfVisited[2][j]) == 1 << slot && halfLine[1][i] != halfLine[2][j]
+							&& Integer.bitCount(visited) >= NETWORK_LENGTH) {
+						return true;
+					}
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * walk() follows the paths from the start chip of throughNetwork() and
+	 * records every one that reaches a goal other than the start chip's
+	 * @param slot, the last chip of the path
+	 * @param line, the line the path came in on, 0 at the start chip
+	 * @param visited, the chips of the path
+	 * @param first, the line the path left the start chip on, 0 at the
+	 * start chip
+	 */
+	private void walk(int slot, int line, int visited, int first) {
+		int state = state(slot, line, visited) * LINES + first;
+		if (walkStamp[state] == stamp) {
+			return;
+		}
+		walkStamp[state] = stamp;
+		for (int d = 0; d < Squares.DIRECTIONS; d++) {
+			int next = graph.neighbor(slot, d);
+			int nextLine = Squares.line(d);
+			if (next < 0 || nextLine == line || (visited & (1 << next)) != 0) {
+				continue;
+			}
+			int nextFirst = first == 0 ? nextLine : first;
+			int nextVisited = visited | (1 << next);
+			int g = goal[next];
+			if (g == 0) {
+				walk(next, nextLine, nextVisited, nextFirst);
+			} else if (g != goal[start]) {
+				int half = ((g * LINES + nextFirst) << MAX_CHIPS) + nextVisited;
+				if (halfStamp[half] != stamp) {
+					halfStamp[half] = stamp;
+					halfVisited[g][halfCount[g]] = nextVisited;
+					halfLine[g][halfCount[g]] = nextFirst;
+					halfCount[g]++;
+				}
+			}
+		}
+	}
+
+	/**
+	 * prepare() starts a new search of a graph: it finds the goal of every
+	 * chip and invalidates the memos of the last one
+	 */
+	private void prepare(ChipGraph graph, Chip[] chips, int chipsNum, int color) {
+		this.graph = graph;
+		stamp++;
+		goalSlots[0] = 0;
+		goalSlots[1] = 0;
+		goalSlots[2] = 0;
+		for (int i = 0; i < chipsNum; i++) {
+			goal[i] = goalOf(chips[i], color);
+			goalSlots[goal[i]] |= 1 << i;
+		}
+	}
+
+	/**
+	 * isNetwork() returns whether the last evaluate() found a network
+	 */
+	public boolean isNetwork() {
+		return network;
+	}
+
+	/**
+	 * getScore() returns the best partial network score of the last
+	 * evaluate(): 10 for each chip in a goal and 5 for every other chip
+	 */
+	public int getScore() {
+		return score;
+	}
+
+	/**
+	 * getLength() returns the number of chips of the highest scoring partial
+	 * network of the last evaluate()
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	/**
+	 * goalOf() returns the goal a chip is in: 1 for left/top, 2 for
+	 * right/bottom, 0 for none
+	 */
+	static int goalOf(Chip chip, int color) {
+		int square = Squares.square(chip.getX(), chip.getY());
+		if (color == MachinePlayer.WHITE_FIRST) {
+			return goalOf(square, Squares.WHITE_GOAL_A, Squares.WHITE_GOAL_B);
+		}
+		return goalOf(square, Squares.BLACK_GOAL_A, Squares.BLACK_GOAL_B);
+	}
+
+	private static int goalOf(int square, long goalA, long goalB) {
+		if ((goalA & (1L << square)) != 0) {
+			return 1;
+		}
+		if ((goalB & (1L << square)) != 0) {
+			return 2;
+		}
+		return 0;
+	}
+
+	private int chipScore(int slot) {
+		return goal[slot] != 0 ? GOAL_SCORE : CHIP_SCORE;
+	}
+
+	private static int state(int slot, int line, int visited) {
+		return (visited * LINES + line) * MAX_CHIPS + slot;
+	}
+
+	/**
+	 * extend() returns the highest score that continuing a path can add
+	 * @param slot, the last chip of the path
+	 * @param line, the line the path came in on, 0 at its first chip
+	 * @param visited, the chips of the path
+	 */
+	private int extend(int slot, int line, int visited) {
+		// a goal chip ends the path, unless the path starts there
+		if (goal[slot] != 0 && visited != 1 << slot) {
+			return 0;
+		}
+		int state = state(slot, line, visited);
+		if (bestStamp[state] == stamp) {
+			return best[state];
+		}
+		int result = 0;
+		for (int d = 0; d < Squares.DIRECTIONS; d++) {
+			int next = graph.neighbor(slot, d);
+			int nextLine = Squares.line(d);
+			if (next < 0 || nextLine == line || (visited & (1 << next)) != 0) {
+				continue;
+			}
+			if (goal[next] != 0 && (visited & goalSlots[goal[next]]) != 0) {
+				continue;
+			}
+			int gain = chipScore(next) + extend(next, nextLine, visited | (1 << next));
+			if (gain > result) {
+				result = gain;
+			}
+		}
+		best[state] = result;
+		bestStamp[state] = stamp;
+		return result;
+	}
+
+	/**
+	 * pathLength() follows the memo of extend() along the best path from
+	 * a state and returns its number of chips
+	 */
+	private int pathLength(int slot, int line, int visited) {
+		int count = Integer.bitCount(visited);
+		while (true) {
+			if (goal[slot] != 0 && visited != 1 << slot) {
+				return count;
+			}
+			int want = best[state(slot, line, visited)];
+			if (want == 0) {
+				return count;
+			}
+			int found = -1;
+			int foundLine = 0;
+			for (int d = 0; d < Squares.DIRECTIONS && found < 0; d++) {
+				int next = graph.neighbor(slot, d);
+				int nextLine = Squares.line(d);
+				if (next < 0 || nextLine == line || (visited & (1 << next)) != 0) {
+					continue;
+				}
+				if (goal[next] != 0 && (visited & goalSlots[goal[next]]) != 0) {
+					continue;
+				}
+				int nextVisited = visited | (1 << next);
+				int nextBest = goal[next] != 0 ? 0 : best[state(next, nextLine, nextVisited)];
+				if (chipScore(next) + nextBest == want) {
+					found = next;
+					foundLine = nextLine;
+				}
+			}
+			slot = found;
+			line = foundLine;
+			visited |= 1 << found;
+			count++;
+		}
+	}
+
+	/**
+	 * reachesGoal() returns whether a path from a chip in the left/top goal
+	 * can be completed into a network
+	 * @param slot, the last chip of the path
+	 * @param line, the line the path came in on, 0 at its first chip
+	 * @param visited, the chips of the path
+	 */
+	private boolean reachesGoal(int slot, int line, int visited) {
+		int state = state(slot, line, visited);
+		if (reachStamp[state] == stamp) {
+			return reach[state];
+		}
+		boolean result = false;
+		for (int d = 0; d < Squares.DIRECTIONS && !result; d++) {
+			int next = graph.neighbor(slot, d);
+			int nextLine = Squares.line(d);
+			if (next < 0 || nextLine == line || (visited & (1 << next)) != 0) {
+				continue;
+			}
+			if (goal[next] == 2) {
+				result = Integer.bitCount(visited) + 1 >= NETWORK_LENGTH;
+			} else if (goal[next] == 0) {
+				result = reachesGoal(next, nextLine, visited | (1 << next));
+			}
+		}
+		reach[state] = result;
+		reachStamp[state] = stamp;
+		return result;
+	}
+
+}
@@ -0,0 +1,155 @@
+package player;
+
+import java.util.Arrays;
+
+/**
+ *  A fixed-size transposition table for the alpha-beta search, keyed by
+ *  SimpleBoard.positionKey().  Each entry stores the search depth, the
+ *  bound type, the score and the best move of a searched position.
+ *
+ *  Entries come in buckets of two: the first slot keeps the deepest search
+ *  seen for its bucket, the second is overwritten by every store that does
+ *  not go into the first one.  Keys and entries are held in two long
+ *  arrays, 16 bytes per entry.
+ *
+ *  The table lives across searches.  Instead of clearing it, every search
+ *  starts a new generation with newSearch(); entries of older generations
+ *  can still be probed, but give up the first slot of their bucket to any
+ *  new store.
+ *
+ *  The parallel searches share one table between their threads without
+ *  locking.  The keys array holds key ^ entry rather than the key, so an
+ *  entry whose two halves were written by different threads no longer
+ *  matches its key and reads as a miss.
+ */
+class TranspositionTable {
+	// bound types
+	public final static int EXACT = 0;
+	public final static int LOWER = 1;
+	public final static int UPPER = 2;
+
+	private final static int ENTRY_BYTES = 16;
+	// entry layout: move in bits 0-15, score in bits 16-47, depth in bits
+	// 48-55, bound in bits 56-57; bit 58 marks a used entry, bits 59-63 hold
+	// the generation
+	private final static long USED = 1L << 58;
+	private final static int GENERATIONS = 32;
+
+	// key ^ entry of each slot
+	private long[] keys;
+	private long[] entries;
+	// number of buckets - 1; the number of buckets is a power of 2
+	private int mask;
+	// generation of the current search, stored with every entry
+	private int generation;
+
+	/**
+	 * Creates a table that uses about the given number of megabytes.
+	 */
+	public TranspositionTable(int megabytes) {
+		long slots = ((long) megabytes << 20) / ENTRY_BYTES;
+		int buckets = 1;
+		while ((long) buckets * 4 <= slots && buckets < (1 << 29)) {
+			buckets *= 2;
+		}
+		keys = new long[2 * buckets];
+		entries = new long[2 * buckets];
+		mask = buckets - 1;
+		generation = 0;
+	}
+
+	/**
+	 * newSearch() starts a new generation, which ages all entries stored so far
+	 */
+	public void newSearch() {
+		generation = (generation + 1) % GENERATIONS;
+	}
+
+	/**
+	 * clear() empties the table
+	 */
+	public void clear() {
+		Arrays.fill(keys, 0);
+		Arrays.fill(entries, 0);
+	}
+
+	/**
+	 * probe() looks up a position
+	 * @param key, the position key
+	 * @return the entry of the position, or 0 if it is not in the table
+	 */
+	public long probe(long key) {
+		int i = bucket(key);
+		long entry = entries[i];
+		if (entry != 0 && (keys[i] ^ entry) == key) {
+			return entry;
+		}
+		entry = entries[i + 1];
+		if (entry != 0 && (keys[i + 1] ^ entry) == key) {
+			return entry;
+		}
+		return 0;
+	}
+
+	/**
+	 * store() records the result of searching a position
+	 * @param key, the position key
+	 * @param depth, the depth searched below the position
+	 * @param bound, EXACT, LOWER or UPPER
+	 * @param score, the score found
+	 * @param move, the best move found, packed by Moves, or Moves.NONE
+	 */
+	public void store(long key, int depth, int bound, int score, int move) {
+		int i = bucket(key);
+		long entry = ((long) generation << 59) | USED | ((long) bound << 56) | ((long) Math.min(depth, 255) << 48)
+				| (((long) score & 0xFFFFFFFFL) << 16) | (move & 0xFFFF);
+		long first = entries[i];
+		if (first == 0 || (keys[i] ^ first) == key || depth >= depth(first) || generation(first) != generation) {
+			keys[i] = key ^ entry;
+			entries[i] = entry;
+		} else {
+			keys[i + 1] = key ^ entry;
+			entries[i + 1] = entry;
+		}
+	}
+
+	private int bucket(long key) {
+		return 2 * ((int) (key ^ (key >>> 32)) & mask);
+	}
+
+	/**
+	 * move() returns the best move of an entry, packed by Moves
+	 */
+	public static int move(long entry) {
+		return (int) (entry & 0xFFFF);
+	}
+
+	/**
+	 * score() returns the score of an entry
+	 */
+	public static int score(long entry) {
+		return (int) (entry >>> 16);
+	}
+
+	/**
+	 * depth() returns the search depth of an entry
+	 */
+	public static int depth(long entry) {
+		return (int) ((entry >>> 48) & 0xFF);
+	}
+
+	/**
+	 * generation() returns the generation an entry was stored in
+	 */
+	private static int generation(long entry) {
+		return (int) (entry >>> 59);
+	}
+
+	/**
+	 * bound() returns the bound type of an entry
+	 */
+	public static int bound(long entry) {
+		return (int) ((entry >>> 56) & 3);
+	}
+
+}